@@ -21,9 +21,17 @@
  */
 package com.github.unafraid.telegrambot.bots;
 
+import com.github.unafraid.telegrambot.dispatch.DirectUpdateDispatcher;
+import com.github.unafraid.telegrambot.dispatch.IUpdateDispatcher;
+import com.github.unafraid.telegrambot.dispatch.IUpdateProcessor;
+import com.github.unafraid.telegrambot.dispatch.UpdateDeduplicator;
+import com.github.unafraid.telegrambot.dispatch.UpdateType;
 import com.github.unafraid.telegrambot.handlers.*;
+import com.github.unafraid.telegrambot.handlers.async.*;
+import com.github.unafraid.telegrambot.metrics.HandlerOutcome;
+import com.github.unafraid.telegrambot.metrics.IBotMetrics;
 import com.github.unafraid.telegrambot.util.BotUtil;
-import com.github.unafraid.telegrambot.util.IThrowableFunction;
+import com.github.unafraid.telegrambot.util.CommandTokenizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
@@ -49,176 +57,365 @@ import org.telegram.telegrambots.meta.generics.TelegramClient;
 
 import java.io.InputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * @author UnAfraid
  */
 public class AbstractTelegramBot implements LongPollingUpdateConsumer, TelegramClient {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultTelegramBot.class);
-    private static final Pattern COMMAND_ARGS_PATTERN = Pattern.compile("\"([^\"]*)\"|([^\\s]+)");
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+    private static final CompletableFuture<Boolean> CONSUMED = CompletableFuture.completedFuture(true);
+    private static final CompletableFuture<Boolean> PASSED = CompletableFuture.completedFuture(false);
 
-    private final List<ITelegramHandler> handlers = new ArrayList<>();
+    private static final IHandlerInvoker<IUpdateHandler> UPDATE_HANDLER_INVOKER = (bot, update, handler) -> handler instanceof IAsyncUpdateHandler asyncHandler ? asyncHandler.onUpdateAsync(bot, update) : consumed(handler.onUpdate(bot, update));
+    private static final IHandlerInvoker<IUnknownUpdateHandler> UNKNOWN_UPDATE_HANDLER_INVOKER = (bot, update, handler) -> handler instanceof IAsyncUnknownUpdateHandler asyncHandler ? asyncHandler.onUnhandledUpdateAsync(bot, update) : consumed(handler.onUnhandledUpdate(bot, update));
+
+    /**
+     * The routes of update types indexed by {@link UpdateType#ordinal()}, {@link UpdateType#COMMAND} and {@link UpdateType#UNKNOWN} are handled separately
+     */
+    private static final UpdateRoute<?, ?>[] ROUTES = new UpdateRoute<?, ?>[UpdateType.values().length];
+
+    static {
+        route(UpdateType.CHOSEN_INLINE_QUERY, IChosenInlineQueryHandler.class, Update::getChosenInlineQuery, ChosenInlineQuery::getFrom, (bot, update, handler) -> handler instanceof IAsyncChosenInlineQueryHandler asyncHandler ? asyncHandler.onChosenInlineQueryAsync(bot, update, update.getChosenInlineQuery()) : consumed(handler.onChosenInlineQuery(bot, update, update.getChosenInlineQuery())));
+        route(UpdateType.INLINE_QUERY, IInlineQueryHandler.class, Update::getInlineQuery, InlineQuery::getFrom, (bot, update, handler) -> handler instanceof IAsyncInlineQueryHandler asyncHandler ? asyncHandler.onInlineQueryAsync(bot, update, update.getInlineQuery()) : consumed(handler.onInlineQuery(bot, update, update.getInlineQuery())));
+        route(UpdateType.CALLBACK_QUERY, ICallbackQueryHandler.class, Update::getCallbackQuery, CallbackQuery::getFrom, (bot, update, handler) -> handler instanceof IAsyncCallbackQueryHandler asyncHandler ? asyncHandler.onCallbackQueryAsync(bot, update, update.getCallbackQuery()) : consumed(handler.onCallbackQuery(bot, update, update.getCallbackQuery())));
+        route(UpdateType.EDITED_MESSAGE, IEditedMessageHandler.class, Update::getEditedMessage, Message::getFrom, (bot, update, handler) -> handler instanceof IAsyncEditedMessageHandler asyncHandler ? asyncHandler.onEditMessageAsync(bot, update, update.getEditedMessage()) : consumed(handler.onEditMessage(bot, update, update.getEditedMessage())));
+        route(UpdateType.CHANNEL_POST, IChannelPostHandler.class, Update::getChannelPost, Message::getFrom, (bot, update, handler) -> handler instanceof IAsyncChannelPostHandler asyncHandler ? asyncHandler.onChannelPostAsync(bot, update, update.getChannelPost()) : consumed(handler.onChannelPost(bot, update, update.getChannelPost())));
+        route(UpdateType.EDITED_CHANNEL_POST, IEditedChannelPostHandler.class, Update::getEditedChannelPost, Message::getFrom, (bot, update, handler) -> handler instanceof IAsyncEditedChannelPostHandler asyncHandler ? asyncHandler.onEditedChannelPostAsync(bot, update, update.getEditedChannelPost()) : consumed(handler.onEditedChannelPost(bot, update, update.getEditedChannelPost())));
+        route(UpdateType.SHIPPING_QUERY, IShippingQueryHandler.class, Update::getShippingQuery, ShippingQuery::getFrom, (bot, update, handler) -> handler instanceof IAsyncShippingQueryHandler asyncHandler ? asyncHandler.onShippingQueryAsync(bot, update, update.getShippingQuery()) : consumed(handler.onShippingQuery(bot, update, update.getShippingQuery())));
+        route(UpdateType.PRE_CHECKOUT_QUERY, IPreCheckoutQueryHandler.class, Update::getPreCheckoutQuery, PreCheckoutQuery::getFrom, (bot, update, handler) -> handler instanceof IAsyncPreCheckoutQueryHandler asyncHandler ? asyncHandler.onPreCheckoutQueryAsync(bot, update, update.getPreCheckoutQuery()) : consumed(handler.onPreCheckoutQuery(bot, update, update.getPreCheckoutQuery())));
+        route(UpdateType.POLL, IPollHandler.class, u -> u, u -> u.getMessage().getFrom(), (bot, update, handler) -> handler instanceof IAsyncPollHandler asyncHandler ? asyncHandler.onPollAsync(bot, update, update.getPoll()) : consumed(handler.onPoll(bot, update, update.getPoll())));
+        route(UpdateType.POLL_ANSWER, IPollAnswerHandler.class, Update::getPollAnswer, PollAnswer::getUser, (bot, update, handler) -> handler instanceof IAsyncPollAnswerHandler asyncHandler ? asyncHandler.onPollAnswerAsync(bot, update, update.getPollAnswer()) : consumed(handler.onPollAnswer(bot, update, update.getPollAnswer())));
+        route(UpdateType.MY_CHAT_MEMBER, IHasMyChatMemberHandler.class, Update::getMyChatMember, ChatMemberUpdated::getFrom, (bot, update, handler) -> handler instanceof IAsyncHasMyChatMemberHandler asyncHandler ? asyncHandler.onHasMyChatMemberAsync(bot, update, update.getMyChatMember()) : consumed(handler.onHasMyChatMember(bot, update, update.getMyChatMember())));
+        route(UpdateType.CHAT_MEMBER, IChatMemberHandler.class, Update::getChatMember, ChatMemberUpdated::getFrom, (bot, update, handler) -> handler instanceof IAsyncChatMemberHandler asyncHandler ? asyncHandler.onChatMemberAsync(bot, update, update.getChatMember()) : consumed(handler.onChatMember(bot, update, update.getChatMember())));
+        route(UpdateType.CHAT_JOIN_REQUEST, IChatJoinRequestHandler.class, Update::getChatJoinRequest, ChatJoinRequest::getUser, (bot, update, handler) -> handler instanceof IAsyncChatJoinRequestHandler asyncHandler ? asyncHandler.onChatJoinRequestAsync(bot, update, update.getChatJoinRequest()) : consumed(handler.onChatJoinRequest(bot, update, update.getChatJoinRequest())));
+        route(UpdateType.DOCUMENT, IDocumentMessageHandler.class, Update::getMessage, Message::getFrom, (bot, update, handler) -> handler instanceof IAsyncDocumentMessageHandler asyncHandler ? asyncHandler.onDocumentSentAsync(bot, update, update.getMessage()) : consumed(handler.onDocumentSent(bot, update, update.getMessage())));
+        route(UpdateType.MESSAGE, IMessageHandler.class, Update::getMessage, Message::getFrom, (bot, update, handler) -> handler instanceof IAsyncMessageHandler asyncHandler ? asyncHandler.onMessageAsync(bot, update, update.getMessage()) : consumed(handler.onMessage(bot, update, update.getMessage())));
+    }
+
+    private final AtomicReference<HandlerTable> handlerTable = new AtomicReference<>(HandlerTable.EMPTY);
     private volatile IAccessLevelValidator accessLevelValidator = null;
+    private volatile IAsyncAccessLevelValidator asyncAccessLevelValidator = null;
+    private volatile IUpdateDispatcher updateDispatcher = DirectUpdateDispatcher.INSTANCE;
+    private volatile IBotMetrics metrics = null;
+    private volatile UpdateDeduplicator updateDeduplicator = null;
+    private final IUpdateProcessor updateProcessor = this::processUpdate;
     private volatile String username;
+    private final AtomicReference<CompletableFuture<String>> usernameWarmUp = new AtomicReference<>();
+    private volatile String botMention;
 
-    private final TelegramClient telegramClient;
+    private final TelegramClient untimedTelegramClient;
+    private volatile TelegramClient telegramClient;
 
     public AbstractTelegramBot(TelegramClient telegramClient) {
+        this.untimedTelegramClient = telegramClient;
         this.telegramClient = telegramClient;
     }
 
     @Override
     public void consume(List<Update> updates) {
+        final UpdateDeduplicator updateDeduplicator = this.updateDeduplicator;
+        if (updateDeduplicator != null) {
+            updates = updateDeduplicator.filter(updates);
+        }
+
+        // Fetches the username in background while the updates are dispatched, messages mentioning the bot wait for it only if it isn't known yet
+        if ((username == null) && (untimedTelegramClient != null)) {
+            warmUpBotUsername();
+        }
+
+        // Every update is classified once here, the dispatcher and the handler routing share the type
+        final IUpdateDispatcher updateDispatcher = this.updateDispatcher;
         for (Update update : updates) {
-            processUpdate(update);
+            updateDispatcher.dispatch(update, UpdateType.of(update), updateProcessor);
+        }
+    }
+
+    /**
+     * @param update     the update
+     * @param updateType the type of the update
+     * @return future completed once the handlers are done with the update
+     */
+    private CompletableFuture<?> processUpdate(Update update, UpdateType updateType) {
+        final IBotMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return dispatchUpdate(update, updateType);
+        }
+
+        final long start = System.nanoTime();
+        final CompletableFuture<?> result = dispatchUpdate(update, updateType);
+        if (result.isDone()) {
+            recordUpdate(metrics, update, updateType, start);
+            return result;
         }
+        return result.whenComplete((ignored, e) -> recordUpdate(metrics, update, updateType, start));
     }
 
-    private void processUpdate(Update update) {
+    /**
+     * @param update     the update
+     * @param updateType the type of the update
+     * @return future completed once the handlers are done with the update
+     */
+    private CompletableFuture<?> dispatchUpdate(Update update, UpdateType updateType) {
         try {
-            final List<IUpdateHandler> updateHandlers = getAvailableHandlers(IUpdateHandler.class);
-            for (IUpdateHandler updateHandler : updateHandlers) {
-                try {
-                    if (updateHandler.onUpdate(this, update)) {
-                        return;
-                    }
-                } catch (Exception ex) {
-                    LOGGER.error("Uncaught exception in onUpdate: {}", update, ex);
-                }
+            // The same snapshot is used for the whole update even if handlers are changed meanwhile
+            final HandlerTable table = handlerTable.get();
+            final CompletableFuture<Boolean> consumed = notifyHandlers(update, updateType, table.getHandlers(IUpdateHandler.class), 0, false, null, UPDATE_HANDLER_INVOKER);
+            if (!consumed.isDone()) {
+                return consumed.thenCompose(isConsumed -> isConsumed ? COMPLETED : dispatchUpdate(table, update, updateType).thenRun(() -> {}));
             }
+            return consumed.join() ? COMPLETED : dispatchUpdate(table, update, updateType);
+        } catch (Exception e) {
+            LOGGER.error("Failed to handle incoming update", e);
+        }
+        return COMPLETED;
+    }
 
-            if (update.hasChosenInlineQuery()) {
-                handleUpdate(IChosenInlineQueryHandler.class, update, Update::getChosenInlineQuery, ChosenInlineQuery::getFrom, handler -> handler.onChosenInlineQuery(this, update, update.getChosenInlineQuery()));
-                return;
+    /**
+     * @param table      the handler table snapshot
+     * @param update     the update that none of the {@link IUpdateHandler} consumed
+     * @param updateType the type of the update
+     * @return future completed once the handlers are done with the update
+     */
+    private CompletableFuture<?> dispatchUpdate(HandlerTable table, Update update, UpdateType updateType) {
+        try {
+            if (updateType == UpdateType.MESSAGE) {
+                return handleIncomingMessage(table, update);
             }
 
-            if (update.hasInlineQuery()) {
-                handleUpdate(IInlineQueryHandler.class, update, Update::getInlineQuery, InlineQuery::getFrom, handler -> handler.onInlineQuery(this, update, update.getInlineQuery()));
-                return;
+            if (updateType == UpdateType.UNKNOWN) {
+                final IUnknownUpdateHandler[] unknownHandlers = table.getHandlers(IUnknownUpdateHandler.class);
+                if (unknownHandlers.length == 0) {
+                    LOGGER.warn("Update doesn't contains neither ChosenInlineQuery/InlineQuery/CallbackQuery/EditedMessage/ChannelPost/EditedChannelPost/Message Update: {}", update);
+                    return COMPLETED;
+                }
+                return notifyHandlers(update, updateType, unknownHandlers, 0, false, null, UNKNOWN_UPDATE_HANDLER_INVOKER);
             }
 
-            if (update.hasCallbackQuery()) {
-                handleUpdate(ICallbackQueryHandler.class, update, Update::getCallbackQuery, CallbackQuery::getFrom, handler -> handler.onCallbackQuery(this, update, update.getCallbackQuery()));
-                return;
-            }
+            return handleUpdate(table, updateType, ROUTES[updateType.ordinal()], update);
+        } catch (Exception e) {
+            LOGGER.error("Failed to handle incoming update", e);
+        }
+        return COMPLETED;
+    }
 
-            if (update.hasEditedMessage()) {
-                handleUpdate(IEditedMessageHandler.class, update, Update::getEditedMessage, Message::getFrom, handler -> handler.onEditMessage(this, update, update.getEditedMessage()));
-                return;
-            }
+    /**
+     * @param <T>        the handler type
+     * @param <R>        the type of the update's payload
+     * @param table      the handler table snapshot
+     * @param updateType the update type
+     * @param route      the route of the update type
+     * @param update     the update
+     * @return future completed once the handlers are notified
+     */
+    private <T extends ITelegramHandler, R> CompletableFuture<Boolean> handleUpdate(HandlerTable table, UpdateType updateType, UpdateRoute<T, R> route, Update update) {
+        final R payload = route.payload().apply(update);
+        if (payload == null) {
+            return PASSED;
+        }
 
-            if (update.hasChannelPost()) {
-                handleUpdate(IChannelPostHandler.class, update, Update::getChannelPost, Message::getFrom, handler -> handler.onChannelPost(this, update, update.getChannelPost()));
-                return;
+        final User user = route.user().apply(payload);
+        final IAsyncAccessLevelValidator asyncAccessLevelValidator = this.asyncAccessLevelValidator;
+        if (asyncAccessLevelValidator == null) {
+            if (accessLevelValidator instanceof IAccessLevelResolver accessLevelResolver) {
+                return notifyHandlers(update, updateType, table.getHandlers(route.handlerClass(), accessLevelResolver.resolveAccessLevel(user)), 0, false, user, route.invoker());
             }
 
-            if (update.hasEditedChannelPost()) {
-                handleUpdate(IEditedChannelPostHandler.class, update, Update::getChannelPost, Message::getFrom, handler -> handler.onEditedChannelPost(this, update, update.getEditedChannelPost()));
-                return;
-            }
+            // Most updates are consumed by the first handler, so the rest are validated only once they are reached
+            return notifyHandlers(update, updateType, table.getHandlers(route.handlerClass()), 0, true, user, route.invoker());
+        }
 
-            if (update.hasShippingQuery()) {
-                handleUpdate(IShippingQueryHandler.class, update, Update::getShippingQuery, ShippingQuery::getFrom, handler -> handler.onShippingQuery(this, update, update.getShippingQuery()));
-                return;
-            }
+        // The handlers are validated concurrently and notified once all validations are complete
+        return availableHandlersForUserAsync(asyncAccessLevelValidator, table.getHandlers(route.handlerClass()), user).thenCompose(handlers -> notifyHandlers(update, updateType, handlers, 0, false, user, route.invoker())).exceptionally(e -> {
+            LOGGER.error("Failed to handle incoming update", e);
+            return false;
+        });
+    }
 
-            if (update.hasPreCheckoutQuery()) {
-                handleUpdate(IPreCheckoutQueryHandler.class, update, Update::getPreCheckoutQuery, PreCheckoutQuery::getFrom, handler -> handler.onPreCheckoutQuery(this, update, update.getPreCheckoutQuery()));
-                return;
+    /**
+     * Notifies the handlers in order until one of them consumes the update<br>
+     * The next handler is notified once the stage returned by the previous one completes, without blocking the thread meanwhile, handlers that fail are skipped.
+     *
+     * @param update     the update
+     * @param updateType the update type
+     * @param handlers   the handlers
+     * @param from       the index of the first handler to notify
+     * @param validate   whether the access level of the user is validated right before each handler is notified, {@code false} if the handlers are already validated
+     * @param user       the user that the update came from
+     * @param invoker    the invoker notifying the handler
+     * @param <T>        the handler type
+     * @return future completed with {@code true} if any of the handlers consumed the update, {@code false} otherwise
+     */
+    private <T extends ITelegramHandler> CompletableFuture<Boolean> notifyHandlers(Update update, UpdateType updateType, T[] handlers, int from, boolean validate, User user, IHandlerInvoker<T> invoker) {
+        for (int i = from; i < handlers.length; i++) {
+            final T handler = handlers[i];
+            if (validate && !isAccessible(handler, user)) {
+                continue;
             }
 
-            if (update.hasPoll()) {
-                handleUpdate(IPollHandler.class, update, u -> u, u -> u.getMessage().getFrom(), handler -> handler.onPoll(this, update, update.getPoll()));
-                return;
+            final CompletableFuture<Boolean> consumed = invokeHandler(update, updateType, handler, invoker);
+            if (!consumed.isDone()) {
+                final int next = i + 1;
+                return consumed.thenCompose(isConsumed -> isConsumed ? CONSUMED : notifyHandlers(update, updateType, handlers, next, validate, user, invoker));
             }
 
-            if (update.hasPollAnswer()) {
-                handleUpdate(IPollAnswerHandler.class, update, Update::getPollAnswer, PollAnswer::getUser, handler -> handler.onPollAnswer(this, update, update.getPollAnswer()));
-                return;
+            if (consumed.join()) {
+                return CONSUMED;
             }
+        }
+        return PASSED;
+    }
 
-            if (update.hasMyChatMember()) {
-                handleUpdate(IHasMyChatMemberHandler.class, update, Update::getMyChatMember, ChatMemberUpdated::getFrom, handler -> handler.onHasMyChatMember(this, update, update.getMyChatMember()));
-                return;
-            }
+    /**
+     * Validates access level, validations that fail are treated as denied access
+     *
+     * @param handler the handler
+     * @param user    the user requesting the that handler
+     * @return {@code true} if user is able to use that handler, {@code false} otherwise
+     */
+    private boolean isAccessible(ITelegramHandler handler, User user) {
+        try {
+            return validateAccessLevel(handler, user);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to validate access level of handler: {} for user: {}", handler.getClass().getSimpleName(), user, e);
+            return false;
+        }
+    }
 
-            if (update.hasChatMember()) {
-                handleUpdate(IChatMemberHandler.class, update, Update::getChatMember, ChatMemberUpdated::getFrom, handler -> handler.onChatMember(this, update, update.getChatMember()));
-                return;
-            }
+    /**
+     * Notifies the handler and reports the measurements to the metrics if enabled
+     *
+     * @param update     the update
+     * @param updateType the update type
+     * @param handler    the handler
+     * @param invoker    the invoker notifying the handler
+     * @param <T>        the handler type
+     * @return future completed with {@code true} if the handler consumed the update, {@code false} if it didn't or failed
+     */
+    private <T extends ITelegramHandler> CompletableFuture<Boolean> invokeHandler(Update update, UpdateType updateType, T handler, IHandlerInvoker<T> invoker) {
+        final IBotMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return whenHandled(handler, update, invoke(update, handler, invoker));
+        }
 
-            if (update.hasChatJoinRequest()) {
-                handleUpdate(IChatJoinRequestHandler.class, update, Update::getChatJoinRequest, ChatJoinRequest::getUser, handler -> handler.onChatJoinRequest(this, update, update.getChatJoinRequest()));
-                return;
-            }
+        final long clientTime = TimedTelegramClient.getClientTime();
+        final long start = System.nanoTime();
+        final CompletableFuture<Boolean> result = invoke(update, handler, invoker);
 
-            if (update.hasMessage()) {
-                if (update.getMessage().hasDocument()) {
-                    handleUpdate(IDocumentMessageHandler.class, update, Update::getMessage, Message::getFrom, handler -> handler.onDocumentSent(this, update, update.getMessage()));
-                    return;
-                }
+        // Only the calls made before the handler returned are measured, the asynchronous ones complete on other threads
+        final long handlerClientTime = TimedTelegramClient.getClientTime() - clientTime;
+        if (result.isDone()) {
+            recordHandler(metrics, update, updateType, handler, result, start, handlerClientTime);
+            return whenHandled(handler, update, result);
+        }
+        return whenHandled(handler, update, result.whenComplete((consumed, e) -> recordHandler(metrics, update, updateType, handler, result, start, handlerClientTime)));
+    }
 
-                handleIncomingMessage(update);
-                return;
-            }
+    /**
+     * @param update  the update
+     * @param handler the handler
+     * @param invoker the invoker notifying the handler
+     * @param <T>     the handler type
+     * @return the stage returned by the handler, failed future if the handler threw
+     */
+    private <T extends ITelegramHandler> CompletableFuture<Boolean> invoke(Update update, T handler, IHandlerInvoker<T> invoker) {
+        try {
+            final CompletionStage<Boolean> result = invoker.invoke(this, update, handler);
+            return result != null ? result.toCompletableFuture() : PASSED;
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
-            final List<IUnknownUpdateHandler> unknownHandlers = getAvailableHandlers(IUnknownUpdateHandler.class);
-            if (unknownHandlers.isEmpty()) {
-                LOGGER.warn("Update doesn't contains neither ChosenInlineQuery/InlineQuery/CallbackQuery/EditedMessage/ChannelPost/EditedChannelPost/Message Update: {}", update);
-                return;
-            }
+    /**
+     * @param handler the handler
+     * @param update  the update
+     * @param result  the result of the handler
+     * @return future completed with {@code true} if the handler consumed the update, failures are logged and treated as not consumed
+     */
+    private CompletableFuture<Boolean> whenHandled(ITelegramHandler handler, Update update, CompletableFuture<Boolean> result) {
+        if (!result.isDone()) {
+            return result.handle((consumed, e) -> isConsumed(handler, update, consumed, e));
+        }
 
-            for (IUnknownUpdateHandler unknownHandler : unknownHandlers) {
-                try {
-                    if (unknownHandler.onUnhandledUpdate(this, update)) {
-                        return;
-                    }
-                } catch (Exception ex) {
-                    LOGGER.error("Uncaught exception in onUnhandledUpdate: {}", update, ex);
-                }
-            }
+        try {
+            return consumed(Boolean.TRUE.equals(result.join()));
+        } catch (CompletionException | CancellationException e) {
+            return consumed(isConsumed(handler, update, null, e));
+        }
+    }
 
-        } catch (Exception e) {
-            LOGGER.error("Failed to handle incoming update", e);
+    private boolean isConsumed(ITelegramHandler handler, Update update, Boolean consumed, Throwable e) {
+        if (e == null) {
+            return Boolean.TRUE.equals(consumed);
         }
+
+        final Throwable cause = (e instanceof CompletionException) && (e.getCause() != null) ? e.getCause() : e;
+        if (cause instanceof TelegramApiRequestException apiException) {
+            LOGGER.warn("API Exception caught on handler: {}, response: {} update: {}", handler.getClass().getSimpleName(), apiException.getApiResponse(), update, cause);
+        } else {
+            LOGGER.warn("Exception caught on handler: {}, update: {}", handler.getClass().getSimpleName(), update, cause);
+        }
+        return false;
+    }
+
+    private static CompletableFuture<Boolean> consumed(boolean consumed) {
+        return consumed ? CONSUMED : PASSED;
+    }
+
+    private static <T extends ITelegramHandler, R> void route(UpdateType updateType, Class<T> handlerClass, Function<Update, R> payload, Function<R, User> user, IHandlerInvoker<T> invoker) {
+        ROUTES[updateType.ordinal()] = new UpdateRoute<>(handlerClass, payload, user, invoker);
     }
 
     /**
-     * @param <T>        the handler type
-     * @param <R>        the return type
-     * @param clazz      the handler class
-     * @param update     the update
-     * @param dataMapper the data mapper function
-     * @param idMapper   the id mapper function
-     * @param action     the action to execute
-     */
-    private <T extends ITelegramHandler, R> void handleUpdate(Class<T> clazz, Update update, Function<Update, R> dataMapper, Function<R, User> idMapper, IThrowableFunction<T, Boolean> action) {
-        final R query = dataMapper.apply(update);
-        if (query == null) {
-            return;
-        }
-
-        final User user = idMapper.apply(query);
-        final List<T> handlers = getAvailableHandlersForUser(clazz, user);
-        for (T handler : handlers) {
-            try {
-                if (action.apply(handler)) {
-                    break;
-                }
-            } catch (TelegramApiRequestException e) {
-                LOGGER.warn("Exception caught on handler: {} error: {}", handler.getClass().getSimpleName(), e.getApiResponse(), e);
-            } catch (Exception e) {
-                LOGGER.warn("Exception caught on handler: {}", handler.getClass().getSimpleName(), e);
-            }
+     * Notifies single handler about an update, implementations don't capture anything so they are shared by all updates and bots
+     *
+     * @param <T> the handler type
+     */
+    @FunctionalInterface
+    private interface IHandlerInvoker<T extends ITelegramHandler> {
+        CompletionStage<Boolean> invoke(AbstractTelegramBot bot, Update update, T handler) throws Exception;
+    }
+
+    /**
+     * How the updates of single type reach their handlers
+     *
+     * @param handlerClass the class of the handlers
+     * @param payload      extracts the payload from the update
+     * @param user         extracts the user whose access level is validated from the payload
+     * @param invoker      notifies the handler
+     * @param <T>          the handler type
+     * @param <R>          the type of the payload
+     */
+    private record UpdateRoute<T extends ITelegramHandler, R>(Class<T> handlerClass, Function<Update, R> payload, Function<R, User> user, IHandlerInvoker<T> invoker) {
+    }
+
+    private void recordHandler(IBotMetrics metrics, Update update, UpdateType updateType, ITelegramHandler handler, CompletableFuture<Boolean> result, long start, long clientTime) {
+        final long wallTime = System.nanoTime() - start;
+        final HandlerOutcome outcome = result.isCompletedExceptionally() ? HandlerOutcome.EXCEPTION : Boolean.TRUE.equals(result.join()) ? HandlerOutcome.CONSUMED : HandlerOutcome.PASSED;
+        try {
+            metrics.onHandlerInvoked(updateType, handler.getClass(), outcome, wallTime, clientTime);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to record metrics of handler: {}", handler.getClass().getSimpleName(), e);
+        }
+    }
+
+    private void recordUpdate(IBotMetrics metrics, Update update, UpdateType updateType, long start) {
+        try {
+            metrics.onUpdateProcessed(updateType, System.nanoTime() - start);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to record metrics of update: {}", update.getUpdateId(), e);
         }
     }
 
@@ -231,24 +428,63 @@ public class AbstractTelegramBot implements LongPollingUpdateConsumer, TelegramC
             return null;
         }
 
+        final String mention = getBotMention();
+
         // Parse commands that goes like: @BotNickname help to /help
-        if (text.startsWith("@" + getBotUsername() + " ")) {
-            text = '/' + text.substring(("@" + getBotUsername() + " ").length());
+        if (text.startsWith(mention) && (text.length() > mention.length()) && (text.charAt(mention.length()) == ' ')) {
+            return '/' + text.substring(mention.length() + 1);
         }
+
         // Parse commands that goes like: /help@BotNickname to /help
-        else if (text.contains("@" + getBotUsername())) {
-            text = text.replaceAll("@" + getBotUsername(), "");
-            if (text.charAt(0) != '/') {
-                text = '/' + text;
-            }
+        int index = text.indexOf(mention);
+        if (index == -1) {
+            return text;
         }
-        return text;
+
+        final StringBuilder sb = new StringBuilder(text.length());
+        int from = 0;
+        do {
+            sb.append(text, from, index);
+            from = index + mention.length();
+        } while ((index = text.indexOf(mention, from)) != -1);
+        sb.append(text, from, text.length());
+
+        if (sb.length() == 0) {
+            return null;
+        }
+
+        if (sb.charAt(0) != '/') {
+            sb.insert(0, '/');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the bot's mention: @BotNickname
+     */
+    private String getBotMention() {
+        String mention = botMention;
+        if (mention == null) {
+            mention = '@' + getBotUsername();
+            botMention = mention;
+        }
+        return mention;
     }
 
     private String getBotUsername() {
         if (username == null) {
             synchronized (this) {
                 if (username == null) {
+                    // Waits for the warm-up in flight instead of asking again, the username is fetched directly if it failed
+                    final CompletableFuture<String> warmUp = usernameWarmUp.get();
+                    if (warmUp != null) {
+                        try {
+                            return warmUp.join();
+                        } catch (CompletionException | CancellationException e) {
+                            LOGGER.debug("Failed to warm up bot username", e);
+                        }
+                    }
+
                     try {
                         final User user = telegramClient.execute(GetMe.builder().build());
                         username = user.getUserName();
@@ -261,64 +497,113 @@ public class AbstractTelegramBot implements LongPollingUpdateConsumer, TelegramC
         return username;
     }
 
+    /**
+     * Fetches the bot's username in background, so the first message received doesn't have to wait for it while being processed<br>
+     * It's started on the first updates received as well, call it before the bot is registered to have the username ready before they arrive.
+     * Concurrent calls share single request, a failed one is retried on the next call.
+     *
+     * @return future completed with the bot's username
+     */
+    public CompletableFuture<String> warmUpBotUsername() {
+        final String username = this.username;
+        if (username != null) {
+            return CompletableFuture.completedFuture(username);
+        }
+
+        final CompletableFuture<String> warmUp = new CompletableFuture<>();
+        final CompletableFuture<String> pending = usernameWarmUp.compareAndExchange(null, warmUp);
+        if (pending != null) {
+            return pending;
+        }
+
+        try {
+            final CompletableFuture<User> user = telegramClient.executeAsync(GetMe.builder().build());
+            Objects.requireNonNull(user, "Telegram client returned no result!");
+            user.thenApply(User::getUserName).whenComplete((name, e) -> {
+                if (e != null) {
+                    failWarmUp(warmUp, e);
+                    return;
+                }
+                this.username = name;
+                warmUp.complete(name);
+            });
+        } catch (Exception e) {
+            failWarmUp(warmUp, e);
+        }
+        return warmUp;
+    }
+
+    private void failWarmUp(CompletableFuture<String> warmUp, Throwable e) {
+        usernameWarmUp.compareAndSet(warmUp, null);
+        warmUp.completeExceptionally(e);
+    }
+
 
     /**
+     * @param table  the handler table snapshot
      * @param update the update
+     * @return future completed once the handlers are notified
      */
-    private void handleIncomingMessage(Update update) {
+    private CompletableFuture<?> handleIncomingMessage(HandlerTable table, Update update) {
         final Message message = update.getMessage();
         if (message == null) {
-            return;
+            return COMPLETED;
         }
 
         final String text = processText(message.getText());
         if ((text == null) || text.isEmpty()) {
-            return;
-        }
-
-        // Parse arguments to a list
-        final Matcher matcher = COMMAND_ARGS_PATTERN.matcher(text);
-        if (matcher.find()) {
-            String command = matcher.group();
-            final List<String> args = new ArrayList<>();
-            String arg;
-            while (matcher.find()) {
-                arg = matcher.group(1);
-                if (arg == null) {
-                    arg = matcher.group(0);
+            return COMPLETED;
+        }
+
+        final String command = CommandTokenizer.parseCommand(text);
+        if (command != null) {
+            final ICommandHandler handler = table.getCommandHandler(command);
+            if (handler != null) {
+                final IAsyncAccessLevelValidator asyncAccessLevelValidator = this.asyncAccessLevelValidator;
+                if (asyncAccessLevelValidator != null) {
+                    return validateAccessLevelAsync(asyncAccessLevelValidator, handler, message.getFrom()).thenCompose(allowed -> handleCommand(handler, update, message, text, allowed));
                 }
 
-                args.add(arg);
+                return handleCommand(handler, update, message, text, null);
             }
 
-            final ICommandHandler handler = getHandler(command);
-            if (handler != null) {
-                try {
-                    if (!validateAccessLevel(handler, message.getFrom())) {
-                        BotUtil.sendMessage(telegramClient, message, message.getFrom().getUserName() + ": You are not authorized to use this function!", true, false, null);
-                        return;
-                    }
+            return handleUpdate(table, UpdateType.MESSAGE, ROUTES[UpdateType.MESSAGE.ordinal()], update);
+        }
+        return COMPLETED;
+    }
 
-                    handler.onCommandMessage(this, update, message, args);
-                } catch (TelegramApiRequestException e) {
-                    LOGGER.warn("API Exception caught on handler: {}, response: {} message: {}", handler.getClass().getSimpleName(), e.getApiResponse(), message, e);
-                } catch (Exception e) {
-                    LOGGER.warn("Exception caught on handler: {}, message: {}", handler.getClass().getSimpleName(), message, e);
-                }
-            } else {
-                for (IMessageHandler messageHandler : getAvailableHandlersForUser(IMessageHandler.class, message.getFrom())) {
-                    try {
-                        if (messageHandler.onMessage(this, update, message)) {
-                            break;
-                        }
-                    } catch (TelegramApiRequestException e) {
-                        LOGGER.warn("API Exception caught on handler: {}, response: {} message: {}", messageHandler.getClass().getSimpleName(), e.getApiResponse(), message, e);
-                    } catch (Exception e) {
-                        LOGGER.warn("Exception caught on handler: {}, message: {}", messageHandler.getClass().getSimpleName(), message, e);
-                    }
-                }
+    /**
+     * @param handler     the command handler
+     * @param update      the update
+     * @param message     the message
+     * @param text        the processed text of the message
+     * @param allowed     the result of the asynchronous access level validation, {@code null} to validate synchronously
+     * @return future completed once the command handler is done
+     */
+    private CompletableFuture<?> handleCommand(ICommandHandler handler, Update update, Message message, String text, Boolean allowed) {
+        try {
+            if (!(allowed != null ? allowed : validateAccessLevel(handler, message.getFrom()))) {
+                BotUtil.sendMessage(telegramClient, message, message.getFrom().getUserName() + ": You are not authorized to use this function!", true, false, null);
+                return COMPLETED;
             }
+        } catch (TelegramApiRequestException e) {
+            LOGGER.warn("API Exception caught on handler: {}, response: {} message: {}", handler.getClass().getSimpleName(), e.getApiResponse(), message, e);
+            return COMPLETED;
+        } catch (Exception e) {
+            LOGGER.warn("Exception caught on handler: {}, message: {}", handler.getClass().getSimpleName(), message, e);
+            return COMPLETED;
         }
+
+        // Arguments are parsed only once it's known that the message is a command
+        return invokeHandler(update, UpdateType.COMMAND, handler, (bot, u, commandHandler) -> {
+            final List<String> args = CommandTokenizer.parseArguments(text);
+            if (commandHandler instanceof IAsyncCommandHandler asyncHandler) {
+                return asyncHandler.onCommandMessageAsync(bot, u, message, args).thenApply(ignored -> true);
+            }
+
+            commandHandler.onCommandMessage(bot, u, message, args);
+            return CONSUMED;
+        });
     }
 
     /**
@@ -337,13 +622,83 @@ public class AbstractTelegramBot implements LongPollingUpdateConsumer, TelegramC
         return accessLevelValidator;
     }
 
+    /**
+     * Sets the Asynchronous Access Level Validator instance that will be used for future access level validations of incoming updates<br>
+     * When set it takes precedence over {@link #setAccessLevelValidator(IAccessLevelValidator)}, the handlers are validated concurrently and notified once all validations complete, without blocking the thread that dispatches the updates.
+     *
+     * @param asyncAccessLevelValidator the asynchronous access level validator implementation, {@code null} to validate synchronously
+     */
+    public void setAsyncAccessLevelValidator(IAsyncAccessLevelValidator asyncAccessLevelValidator) {
+        this.asyncAccessLevelValidator = asyncAccessLevelValidator;
+    }
+
+    /**
+     * @return the Asynchronous Access Level Validator instance that will be used for future access level validations of incoming updates
+     */
+    public IAsyncAccessLevelValidator getAsyncAccessLevelValidator() {
+        return asyncAccessLevelValidator;
+    }
+
+    /**
+     * Sets the Update Dispatcher that decides on which thread and in what order the received updates are processed, by default updates are processed one by one on the thread that received them
+     *
+     * @param updateDispatcher the update dispatcher implementation
+     */
+    public void setUpdateDispatcher(IUpdateDispatcher updateDispatcher) {
+        this.updateDispatcher = Objects.requireNonNull(updateDispatcher, "Update dispatcher cannot be null!");
+    }
+
+    /**
+     * @return the Update Dispatcher that decides on which thread and in what order the received updates are processed
+     */
+    public IUpdateDispatcher getUpdateDispatcher() {
+        return updateDispatcher;
+    }
+
+    /**
+     * Sets the Update Deduplicator that drops updates received more than once before any handler is notified, by default duplicates aren't checked
+     *
+     * @param updateDeduplicator the update deduplicator, {@code null} to disable it
+     */
+    public void setUpdateDeduplicator(UpdateDeduplicator updateDeduplicator) {
+        this.updateDeduplicator = updateDeduplicator;
+    }
+
+    /**
+     * @return the Update Deduplicator that drops updates received more than once, {@code null} if disabled
+     */
+    public UpdateDeduplicator getUpdateDeduplicator() {
+        return updateDeduplicator;
+    }
+
+    /**
+     * Sets the metrics that receive the measurements of the handlers notified about updates, such as {@link com.github.unafraid.telegrambot.metrics.InMemoryBotMetrics}
+     *
+     * @param metrics the metrics implementation, {@code null} to disable measuring
+     */
+    public void setMetrics(IBotMetrics metrics) {
+        this.metrics = metrics;
+
+        // Client calls are timed only while metrics are enabled, otherwise they go straight to the client
+        if (untimedTelegramClient != null) {
+            telegramClient = metrics != null ? new TimedTelegramClient(untimedTelegramClient) : untimedTelegramClient;
+        }
+    }
+
+    /**
+     * @return the metrics that receive the measurements of the handlers notified about updates, {@code null} if disabled
+     */
+    public IBotMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Registers ICommandHandler instance into a collection of handlers
      *
      * @param handler the ICommandHandler instance
      */
     public void addHandler(ITelegramHandler handler) {
-        handlers.add(handler);
+        handlerTable.updateAndGet(table -> table.withHandler(handler));
     }
 
     /**
@@ -353,28 +708,41 @@ public class AbstractTelegramBot implements LongPollingUpdateConsumer, TelegramC
      * @return {@code true} if handler with such command name was previously registered, {@code false} otherwise
      */
     public boolean removeHandler(ITelegramHandler handler) {
-        return handlers.remove(handler);
+        HandlerTable current;
+        HandlerTable updated;
+        do {
+            current = handlerTable.get();
+            updated = current.withoutHandler(handler);
+            if (updated == current) {
+                return false;
+            }
+        } while (!handlerTable.compareAndSet(current, updated));
+        return true;
+    }
+
+    /**
+     * Atomically replaces all registered handlers with the given ones<br>
+     * Updates being processed meanwhile keep using the previous handlers, the following ones see only the new handlers.
+     *
+     * @param handlers the new handlers in the order they should be notified
+     */
+    public void replaceHandlers(Collection<? extends ITelegramHandler> handlers) {
+        handlerTable.set(new HandlerTable(handlers));
     }
 
     /**
-     * @param command the command name
+     * @param command the command name or any of its aliases, case-insensitive
      * @return {@link ICommandHandler} command handler from the collection of handlers, {@code null} if not registered
      */
     public ICommandHandler getHandler(String command) {
-        //@formatter:off
-		return handlers.stream()
-				.filter(handler -> handler instanceof ICommandHandler)
-				.map(handler -> (ICommandHandler) handler)
-				.filter(handler -> handler.getCommand().equalsIgnoreCase(command))
-				.findFirst().orElse(null);
-		//@formatter:on
+        return handlerTable.get().getCommandHandler(command);
     }
 
     /**
-     * @return {@code Collection<ICommandHandler>} the collection of ICommandHandler containing all currently registered handlers
+     * @return {@code Collection<ICommandHandler>} immutable snapshot of the collection of ICommandHandler containing all currently registered handlers
      */
     public Collection<ITelegramHandler> getHandlers() {
-        return Collections.unmodifiableCollection(handlers);
+        return handlerTable.get().getHandlers();
     }
 
     /**
@@ -385,12 +753,7 @@ public class AbstractTelegramBot implements LongPollingUpdateConsumer, TelegramC
      * @return {@code List<T>} with all handlers implementing the generic type provided
      */
     public <T extends ITelegramHandler> List<T> getAvailableHandlers(Class<T> clazz) {
-        //@formatter:off
-		return handlers.stream()
-				.filter(clazz::isInstance)
-				.map(clazz::cast)
-				.collect(Collectors.toList());
-		//@formatter:on
+        return Collections.unmodifiableList(Arrays.asList(handlerTable.get().getHandlers(clazz)));
     }
 
     /**
@@ -402,13 +765,103 @@ public class AbstractTelegramBot implements LongPollingUpdateConsumer, TelegramC
      * @return {@code List<T>} with all handlers implementing the generic type provided
      */
     public <T extends ITelegramHandler> List<T> getAvailableHandlersForUser(Class<T> clazz, User user) {
-        //@formatter:off
-		return handlers.stream()
-				.filter(clazz::isInstance)
-				.map(clazz::cast)
-				.filter(messageHandler -> validateAccessLevel(messageHandler, user))
-				.collect(Collectors.toList());
-		//@formatter:on
+        return Collections.unmodifiableList(Arrays.asList(availableHandlersForUser(handlerTable.get(), clazz, user)));
+    }
+
+    /**
+     * Returns the handlers of the handler table that the user has access to.<br>
+     * When the validator is {@link IAccessLevelResolver} the user is resolved once and the handlers precomputed for that access level are returned,
+     * otherwise the shared array of the table is returned as is unless some handler has to be filtered out.
+     *
+     * @param table the handler table snapshot
+     * @param clazz the class of the handler
+     * @param user  the user that requests this handler
+     * @param <T>   the type of the handler
+     * @return array with all handlers implementing the generic type provided that the user has access to
+     */
+    private <T extends ITelegramHandler> T[] availableHandlersForUser(HandlerTable table, Class<T> clazz, User user) {
+        if (accessLevelValidator instanceof IAccessLevelResolver accessLevelResolver) {
+            return table.getHandlers(clazz, accessLevelResolver.resolveAccessLevel(user));
+        }
+
+        final T[] handlers = table.getHandlers(clazz);
+        T[] result = null;
+        int count = 0;
+        for (int i = 0; i < handlers.length; i++) {
+            final T handler = handlers[i];
+            if (validateAccessLevel(handler, user)) {
+                if (result != null) {
+                    result[count++] = handler;
+                }
+            } else if (result == null) {
+                result = Arrays.copyOf(handlers, handlers.length - 1);
+                count = i;
+            }
+        }
+        return result == null ? handlers : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Validates all handlers concurrently and returns the ones that the user has access to.<br>
+     * The shared array of the table is returned as is unless some handler has to be filtered out.
+     *
+     * @param asyncAccessLevelValidator the asynchronous access level validator
+     * @param handlers                  the handlers
+     * @param user                      the user that requests this handler
+     * @param <T>                       the type of the handler
+     * @return future completed with all handlers that the user has access to once all validations complete
+     */
+    private <T extends ITelegramHandler> CompletableFuture<T[]> availableHandlersForUserAsync(IAsyncAccessLevelValidator asyncAccessLevelValidator, T[] handlers, User user) {
+        if (handlers.length == 0) {
+            return CompletableFuture.completedFuture(handlers);
+        }
+
+        @SuppressWarnings("unchecked")
+        final CompletableFuture<Boolean>[] validations = new CompletableFuture[handlers.length];
+        for (int i = 0; i < handlers.length; i++) {
+            validations[i] = validateAccessLevelAsync(asyncAccessLevelValidator, handlers[i], user);
+        }
+
+        return CompletableFuture.allOf(validations).thenApply(ignored -> {
+            T[] result = null;
+            int count = 0;
+            for (int i = 0; i < handlers.length; i++) {
+                if (validations[i].join()) {
+                    if (result != null) {
+                        result[count++] = handlers[i];
+                    }
+                } else if (result == null) {
+                    result = Arrays.copyOf(handlers, handlers.length - 1);
+                    count = i;
+                }
+            }
+            return result == null ? handlers : Arrays.copyOf(result, count);
+        });
+    }
+
+    /**
+     * Validates access level asynchronously, validations that fail are treated as denied access
+     *
+     * @param asyncAccessLevelValidator the asynchronous access level validator
+     * @param handler                   the handler
+     * @param user                      the user requesting the that handler
+     * @return future completed with {@code true} if user is able to use that handler, {@code false} otherwise
+     */
+    private CompletableFuture<Boolean> validateAccessLevelAsync(IAsyncAccessLevelValidator asyncAccessLevelValidator, ITelegramHandler handler, User user) {
+        CompletionStage<Boolean> validation;
+        try {
+            validation = asyncAccessLevelValidator.validateAsync(handler, user);
+        } catch (Exception e) {
+            validation = CompletableFuture.failedFuture(e);
+        }
+
+        return validation.toCompletableFuture().handle((allowed, e) -> {
+            if (e != null) {
+                LOGGER.warn("Failed to validate access level of handler: {} for user: {}", handler.getClass().getSimpleName(), user, e);
+                return false;
+            }
+            return Boolean.TRUE.equals(allowed);
+        });
     }
 
     /**
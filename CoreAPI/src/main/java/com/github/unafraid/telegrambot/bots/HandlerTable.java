@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.bots;
+
+import com.github.unafraid.telegrambot.handlers.*;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable snapshot of the registered handlers, grouped by handler interface.<br>
+ * A new table is built whenever the handlers change, so dispatching an update only has to read a pre-sized array.
+ *
+ * @author UnAfraid
+ */
+final class HandlerTable {
+    /**
+     * The handler interfaces dispatched by {@link AbstractTelegramBot}, their arrays are built eagerly
+     */
+    private static final List<Class<? extends ITelegramHandler>> HANDLER_TYPES = List.of(
+            IUpdateHandler.class,
+            IChosenInlineQueryHandler.class,
+            IInlineQueryHandler.class,
+            ICallbackQueryHandler.class,
+            IEditedMessageHandler.class,
+            IChannelPostHandler.class,
+            IEditedChannelPostHandler.class,
+            IShippingQueryHandler.class,
+            IPreCheckoutQueryHandler.class,
+            IPollHandler.class,
+            IPollAnswerHandler.class,
+            IHasMyChatMemberHandler.class,
+            IChatMemberHandler.class,
+            IChatJoinRequestHandler.class,
+            IDocumentMessageHandler.class,
+            ICommandHandler.class,
+            IMessageHandler.class,
+            ICancelHandler.class,
+            IUnknownUpdateHandler.class
+    );
+
+    static final HandlerTable EMPTY = new HandlerTable(Collections.emptyList());
+
+    private final List<ITelegramHandler> handlers;
+    private final Map<Class<?>, ITelegramHandler[]> handlersByType = new ConcurrentHashMap<>();
+    private final int[] accessLevels;
+    private final Map<Class<?>, ITelegramHandler[][]> handlersByAccessLevel = new ConcurrentHashMap<>();
+    private final Map<String, ICommandHandler> commands = new HashMap<>();
+    private final boolean hasCommandsWithoutPrefix;
+
+    /**
+     * @param handlers the registered handlers in registration order
+     */
+    HandlerTable(Collection<? extends ITelegramHandler> handlers) {
+        this.handlers = Collections.unmodifiableList(new ArrayList<>(handlers));
+        for (Class<? extends ITelegramHandler> type : HANDLER_TYPES) {
+            handlersByType.put(type, filter(type));
+        }
+
+        accessLevels = this.handlers.stream().mapToInt(ITelegramHandler::getRequiredAccessLevel).distinct().sorted().toArray();
+
+        boolean hasCommandsWithoutPrefix = false;
+        for (ICommandHandler handler : getHandlers(ICommandHandler.class)) {
+            hasCommandsWithoutPrefix |= registerCommand(handler.getCommand(), handler);
+            for (String alias : handler.getAliases()) {
+                hasCommandsWithoutPrefix |= registerCommand(alias, handler);
+            }
+        }
+        this.hasCommandsWithoutPrefix = hasCommandsWithoutPrefix;
+    }
+
+    /**
+     * Indexes the command name, the first handler registered with that name wins
+     *
+     * @param command the command name
+     * @param handler the handler
+     * @return {@code true} if the command doesn't start with {@code /}, {@code false} otherwise
+     */
+    private boolean registerCommand(String command, ICommandHandler handler) {
+        if ((command == null) || command.isEmpty()) {
+            return false;
+        }
+
+        commands.putIfAbsent(normalizeCommand(command), handler);
+        return command.charAt(0) != '/';
+    }
+
+    /**
+     * @param handler the handler to register
+     * @return new table with the handler appended to the current handlers
+     */
+    HandlerTable withHandler(ITelegramHandler handler) {
+        final List<ITelegramHandler> handlers = new ArrayList<>(this.handlers.size() + 1);
+        handlers.addAll(this.handlers);
+        handlers.add(handler);
+        return new HandlerTable(handlers);
+    }
+
+    /**
+     * @param handler the handler to unregister
+     * @return new table without the first occurrence of the handler, or this table if the handler isn't registered
+     */
+    HandlerTable withoutHandler(ITelegramHandler handler) {
+        final List<ITelegramHandler> handlers = new ArrayList<>(this.handlers);
+        return handlers.remove(handler) ? new HandlerTable(handlers) : this;
+    }
+
+    /**
+     * @return all registered handlers in registration order
+     */
+    List<ITelegramHandler> getHandlers() {
+        return handlers;
+    }
+
+    /**
+     * Returns the handlers implementing the given type, the returned array is shared and must not be modified
+     *
+     * @param type the handler type
+     * @param <T>  the handler type
+     * @return the handlers implementing {@code type} in registration order
+     */
+    @SuppressWarnings("unchecked")
+    <T extends ITelegramHandler> T[] getHandlers(Class<T> type) {
+        ITelegramHandler[] result = handlersByType.get(type);
+        if (result == null) {
+            // Types that aren't dispatched by the bot itself are resolved once per table
+            result = handlersByType.computeIfAbsent(type, this::filter);
+        }
+        return (T[]) result;
+    }
+
+    /**
+     * Returns the handlers implementing the given type that a user with the given access level has access to, the returned array is shared and must not be modified
+     *
+     * @param type        the handler type
+     * @param accessLevel the access level of the user
+     * @param <T>         the handler type
+     * @return the handlers implementing {@code type} which required access level is lower or equal to {@code accessLevel} in registration order
+     */
+    @SuppressWarnings("unchecked")
+    <T extends ITelegramHandler> T[] getHandlers(Class<T> type, int accessLevel) {
+        ITelegramHandler[][] result = handlersByAccessLevel.get(type);
+        if (result == null) {
+            // The tiers are only needed with an access level resolver, so they are built once per table on first use
+            result = handlersByAccessLevel.computeIfAbsent(type, this::filterByAccessLevel);
+        }
+
+        // The tier is the amount of distinct access levels lower or equal to the user's one
+        final int index = Arrays.binarySearch(accessLevels, accessLevel);
+        return (T[]) result[index >= 0 ? index + 1 : -(index + 1)];
+    }
+
+    /**
+     * @param command the command token of the message
+     * @return the handler registered with that command name or alias ignoring case, {@code null} if there is none
+     */
+    ICommandHandler getCommandHandler(String command) {
+        if ((command == null) || command.isEmpty()) {
+            return null;
+        }
+
+        // Unless some handler is registered without the / prefix plain text can't be a command
+        if (!hasCommandsWithoutPrefix && (command.charAt(0) != '/')) {
+            return null;
+        }
+        return commands.get(normalizeCommand(command));
+    }
+
+    private static String normalizeCommand(String command) {
+        return command.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param type the handler type
+     * @return the handlers implementing {@code type} for every access level tier, tier 0 has no handlers and the last one has all of them
+     */
+    private ITelegramHandler[][] filterByAccessLevel(Class<?> type) {
+        final ITelegramHandler[] handlers = getHandlers(type.asSubclass(ITelegramHandler.class));
+        final ITelegramHandler[][] result = new ITelegramHandler[accessLevels.length + 1][];
+        result[0] = (ITelegramHandler[]) Array.newInstance(type, 0);
+        for (int tier = 1; tier < accessLevels.length; tier++) {
+            final int accessLevel = accessLevels[tier - 1];
+            result[tier] = Arrays.stream(handlers).filter(handler -> handler.getRequiredAccessLevel() <= accessLevel).toArray(length -> (ITelegramHandler[]) Array.newInstance(type, length));
+        }
+        result[accessLevels.length] = handlers;
+        return result;
+    }
+
+    private ITelegramHandler[] filter(Class<?> type) {
+        int count = 0;
+        for (ITelegramHandler handler : handlers) {
+            if (type.isInstance(handler)) {
+                count++;
+            }
+        }
+
+        final ITelegramHandler[] result = (ITelegramHandler[]) Array.newInstance(type, count);
+        int index = 0;
+        for (ITelegramHandler handler : handlers) {
+            if (type.isInstance(handler)) {
+                result[index++] = handler;
+            }
+        }
+        return result;
+    }
+}
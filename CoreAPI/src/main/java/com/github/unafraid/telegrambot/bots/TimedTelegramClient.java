@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.bots;
+
+import com.github.unafraid.telegrambot.client.AbstractDelegatingTelegramClient;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.PartialBotApiMethod;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Measures the time each thread spends in Telegram client calls, so it can be attributed to the handler that made them<br>
+ * The bot wraps its client only while metrics are enabled, so the calls aren't timed otherwise.
+ * The calls are passed to the client as they are, exceptions thrown by the client and the futures it returns reach the caller unchanged.
+ *
+ * @author UnAfraid
+ */
+final class TimedTelegramClient extends AbstractDelegatingTelegramClient {
+    private static final ThreadLocal<long[]> CLIENT_TIME = ThreadLocal.withInitial(() -> new long[1]);
+
+    TimedTelegramClient(TelegramClient delegate) {
+        super(delegate);
+    }
+
+    /**
+     * @return the total time the current thread spent in Telegram client calls in nanoseconds
+     */
+    static long getClientTime() {
+        return CLIENT_TIME.get()[0];
+    }
+
+    @Override
+    protected <R> R invoke(PartialBotApiMethod<?> method, Call<R> call) throws TelegramApiException {
+        final long start = System.nanoTime();
+        try {
+            return call.execute();
+        } finally {
+            CLIENT_TIME.get()[0] += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> CompletableFuture<T> executeAsync(Method method) throws TelegramApiException {
+        // The only asynchronous method declaring the exception, it's called directly so the exceptions thrown by the client reach the caller unchanged
+        final long start = System.nanoTime();
+        try {
+            return delegate.executeAsync(method);
+        } finally {
+            CLIENT_TIME.get()[0] += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    protected <R> CompletableFuture<R> invokeAsync(PartialBotApiMethod<?> method, AsyncCall<R> call) {
+        // Only submitting the call blocks the handler, the rest isn't attributed to it
+        final long start = System.nanoTime();
+        try {
+            return call.execute();
+        } catch (TelegramApiException e) {
+            // The rest of the asynchronous methods don't declare it, so the client can't throw it
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            CLIENT_TIME.get()[0] += System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.client;
+
+import org.telegram.telegrambots.meta.api.methods.botapimethods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.PartialBotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.business.SetBusinessAccountProfilePhoto;
+import org.telegram.telegrambots.meta.api.methods.groupadministration.SetChatPhoto;
+import org.telegram.telegrambots.meta.api.methods.send.*;
+import org.telegram.telegrambots.meta.api.methods.stickers.*;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageMedia;
+import org.telegram.telegrambots.meta.api.objects.File;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Base for {@link TelegramClient} decorators, every call of the client is routed through {@link #invoke(PartialBotApiMethod, Call)} or {@link #invokeAsync(PartialBotApiMethod, AsyncCall)}
+ * so the decorator has to implement only these two instead of each method of the client.
+ *
+ * @author UnAfraid
+ */
+public abstract class AbstractDelegatingTelegramClient implements TelegramClient {
+    protected final TelegramClient delegate;
+
+    protected AbstractDelegatingTelegramClient(TelegramClient delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "Telegram client cannot be null!");
+    }
+
+    /**
+     * @return the decorated client
+     */
+    public TelegramClient getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Invoked for every synchronous call of the client
+     *
+     * @param method the method being executed, {@code null} for file downloads
+     * @param call   executes the method on the decorated client
+     * @param <R>    the result type
+     * @return the result of the call
+     * @throws TelegramApiException in case the call fails
+     */
+    protected abstract <R> R invoke(PartialBotApiMethod<?> method, Call<R> call) throws TelegramApiException;
+
+    /**
+     * Invoked for every asynchronous call of the client
+     *
+     * @param method the method being executed, {@code null} for file downloads
+     * @param call   executes the method on the decorated client
+     * @param <R>    the result type
+     * @return future completed with the result of the call
+     */
+    protected abstract <R> CompletableFuture<R> invokeAsync(PartialBotApiMethod<?> method, AsyncCall<R> call);
+
+    /**
+     * Starts the asynchronous call, failures thrown instead of being reported through the future are turned into failed future
+     *
+     * @param call the call
+     * @param <R>  the result type
+     * @return future completed with the result of the call
+     */
+    protected static <R> CompletableFuture<R> start(AsyncCall<R> call) {
+        try {
+            final CompletableFuture<R> future = call.execute();
+            return future != null ? future : CompletableFuture.failedFuture(new TelegramApiException("Telegram client returned no future!"));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @param <R> the result type
+     */
+    @FunctionalInterface
+    protected interface Call<R> {
+        R execute() throws TelegramApiException;
+    }
+
+    /**
+     * @param <R> the result type
+     */
+    @FunctionalInterface
+    protected interface AsyncCall<R> {
+        CompletableFuture<R> execute() throws TelegramApiException;
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> CompletableFuture<T> executeAsync(Method method) throws TelegramApiException {
+        return invokeAsync(method, () -> delegate.executeAsync(method));
+    }
+
+    @Override
+    public <T extends Serializable, Method extends BotApiMethod<T>> T execute(Method method) throws TelegramApiException {
+        return invoke(method, () -> delegate.execute(method));
+    }
+
+    @Override
+    public Message execute(SendDocument sendDocument) throws TelegramApiException {
+        return invoke(sendDocument, () -> delegate.execute(sendDocument));
+    }
+
+    @Override
+    public Message execute(SendPhoto sendPhoto) throws TelegramApiException {
+        return invoke(sendPhoto, () -> delegate.execute(sendPhoto));
+    }
+
+    @Override
+    public Boolean execute(SetWebhook setWebhook) throws TelegramApiException {
+        return invoke(setWebhook, () -> delegate.execute(setWebhook));
+    }
+
+    @Override
+    public Message execute(SendVideo sendVideo) throws TelegramApiException {
+        return invoke(sendVideo, () -> delegate.execute(sendVideo));
+    }
+
+    @Override
+    public Message execute(SendVideoNote sendVideoNote) throws TelegramApiException {
+        return invoke(sendVideoNote, () -> delegate.execute(sendVideoNote));
+    }
+
+    @Override
+    public Message execute(SendSticker sendSticker) throws TelegramApiException {
+        return invoke(sendSticker, () -> delegate.execute(sendSticker));
+    }
+
+    @Override
+    public Boolean execute(SetBusinessAccountProfilePhoto setBusinessAccountProfilePhoto) throws TelegramApiException {
+        return invoke(setBusinessAccountProfilePhoto, () -> delegate.execute(setBusinessAccountProfilePhoto));
+    }
+
+    @Override
+    public Message execute(SendAudio sendAudio) throws TelegramApiException {
+        return invoke(sendAudio, () -> delegate.execute(sendAudio));
+    }
+
+    @Override
+    public Message execute(SendVoice sendVoice) throws TelegramApiException {
+        return invoke(sendVoice, () -> delegate.execute(sendVoice));
+    }
+
+    @Override
+    public List<Message> execute(SendMediaGroup sendMediaGroup) throws TelegramApiException {
+        return invoke(sendMediaGroup, () -> delegate.execute(sendMediaGroup));
+    }
+
+    @Override
+    public List<Message> execute(SendPaidMedia sendPaidMedia) throws TelegramApiException {
+        return invoke(sendPaidMedia, () -> delegate.execute(sendPaidMedia));
+    }
+
+    @Override
+    public Boolean execute(SetChatPhoto setChatPhoto) throws TelegramApiException {
+        return invoke(setChatPhoto, () -> delegate.execute(setChatPhoto));
+    }
+
+    @Override
+    public Boolean execute(AddStickerToSet addStickerToSet) throws TelegramApiException {
+        return invoke(addStickerToSet, () -> delegate.execute(addStickerToSet));
+    }
+
+    @Override
+    public Boolean execute(ReplaceStickerInSet replaceStickerInSet) throws TelegramApiException {
+        return invoke(replaceStickerInSet, () -> delegate.execute(replaceStickerInSet));
+    }
+
+    @Override
+    public Boolean execute(SetStickerSetThumbnail setStickerSetThumbnail) throws TelegramApiException {
+        return invoke(setStickerSetThumbnail, () -> delegate.execute(setStickerSetThumbnail));
+    }
+
+    @Override
+    public Boolean execute(CreateNewStickerSet createNewStickerSet) throws TelegramApiException {
+        return invoke(createNewStickerSet, () -> delegate.execute(createNewStickerSet));
+    }
+
+    @Override
+    public File execute(UploadStickerFile uploadStickerFile) throws TelegramApiException {
+        return invoke(uploadStickerFile, () -> delegate.execute(uploadStickerFile));
+    }
+
+    @Override
+    public Serializable execute(EditMessageMedia editMessageMedia) throws TelegramApiException {
+        return invoke(editMessageMedia, () -> delegate.execute(editMessageMedia));
+    }
+
+    @Override
+    public java.io.File downloadFile(File file) throws TelegramApiException {
+        return invoke(null, () -> delegate.downloadFile(file));
+    }
+
+    @Override
+    public InputStream downloadFileAsStream(File file) throws TelegramApiException {
+        return invoke(null, () -> delegate.downloadFileAsStream(file));
+    }
+
+    @Override
+    public Message execute(SendAnimation sendAnimation) throws TelegramApiException {
+        return invoke(sendAnimation, () -> delegate.execute(sendAnimation));
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendDocument sendDocument) {
+        return invokeAsync(sendDocument, () -> delegate.executeAsync(sendDocument));
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendPhoto sendPhoto) {
+        return invokeAsync(sendPhoto, () -> delegate.executeAsync(sendPhoto));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(SetWebhook setWebhook) {
+        return invokeAsync(setWebhook, () -> delegate.executeAsync(setWebhook));
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendVideo sendVideo) {
+        return invokeAsync(sendVideo, () -> delegate.executeAsync(sendVideo));
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendVideoNote sendVideoNote) {
+        return invokeAsync(sendVideoNote, () -> delegate.executeAsync(sendVideoNote));
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendSticker sendSticker) {
+        return invokeAsync(sendSticker, () -> delegate.executeAsync(sendSticker));
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendAudio sendAudio) {
+        return invokeAsync(sendAudio, () -> delegate.executeAsync(sendAudio));
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendVoice sendVoice) {
+        return invokeAsync(sendVoice, () -> delegate.executeAsync(sendVoice));
+    }
+
+    @Override
+    public CompletableFuture<List<Message>> executeAsync(SendMediaGroup sendMediaGroup) {
+        return invokeAsync(sendMediaGroup, () -> delegate.executeAsync(sendMediaGroup));
+    }
+
+    @Override
+    public CompletableFuture<List<Message>> executeAsync(SendPaidMedia sendPaidMedia) {
+        return invokeAsync(sendPaidMedia, () -> delegate.executeAsync(sendPaidMedia));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(SetChatPhoto setChatPhoto) {
+        return invokeAsync(setChatPhoto, () -> delegate.executeAsync(setChatPhoto));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(AddStickerToSet addStickerToSet) {
+        return invokeAsync(addStickerToSet, () -> delegate.executeAsync(addStickerToSet));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(ReplaceStickerInSet replaceStickerInSet) {
+        return invokeAsync(replaceStickerInSet, () -> delegate.executeAsync(replaceStickerInSet));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(SetStickerSetThumbnail setStickerSetThumbnail) {
+        return invokeAsync(setStickerSetThumbnail, () -> delegate.executeAsync(setStickerSetThumbnail));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(CreateNewStickerSet createNewStickerSet) {
+        return invokeAsync(createNewStickerSet, () -> delegate.executeAsync(createNewStickerSet));
+    }
+
+    @Override
+    public CompletableFuture<File> executeAsync(UploadStickerFile uploadStickerFile) {
+        return invokeAsync(uploadStickerFile, () -> delegate.executeAsync(uploadStickerFile));
+    }
+
+    @Override
+    public CompletableFuture<Serializable> executeAsync(EditMessageMedia editMessageMedia) {
+        return invokeAsync(editMessageMedia, () -> delegate.executeAsync(editMessageMedia));
+    }
+
+    @Override
+    public CompletableFuture<Message> executeAsync(SendAnimation sendAnimation) {
+        return invokeAsync(sendAnimation, () -> delegate.executeAsync(sendAnimation));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> executeAsync(SetBusinessAccountProfilePhoto setBusinessAccountProfilePhoto) {
+        return invokeAsync(setBusinessAccountProfilePhoto, () -> delegate.executeAsync(setBusinessAccountProfilePhoto));
+    }
+
+    @Override
+    public CompletableFuture<java.io.File> downloadFileAsync(File file) {
+        return invokeAsync(null, () -> delegate.downloadFileAsync(file));
+    }
+
+    @Override
+    public CompletableFuture<InputStream> downloadFileAsStreamAsync(File file) {
+        return invokeAsync(null, () -> delegate.downloadFileAsStreamAsync(file));
+    }
+}
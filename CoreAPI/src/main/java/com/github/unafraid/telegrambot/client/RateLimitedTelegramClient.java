@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.PartialBotApiMethod;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link org.telegram.telegrambots.meta.generics.TelegramClient} that keeps the calls within Telegram's flood limits instead of running into 429 responses.<br>
+ * Every chat has its own token bucket (groups and channels are limited separately from private chats) and all chats share a global one.
+ * Calls without chat id, such as edits of inline messages, are limited only by the global bucket.
+ * Calls over the limit are queued and released in round-robin order between chats, so single busy chat can't starve the others.<br>
+ * Asynchronous calls never block, they are executed once released, synchronous calls wait for their turn on the calling thread.
+ * Only the methods sending or editing messages are limited, see {@link #DEFAULT_LIMITED_METHODS}, the rest such as looking up chats, deleting messages or answering callback queries go right away.
+ *
+ * @author UnAfraid
+ */
+public class RateLimitedTelegramClient extends AbstractDelegatingTelegramClient implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitedTelegramClient.class);
+    private static final CompletableFuture<Void> RELEASED = CompletableFuture.completedFuture(null);
+    private static final long IDLE_CHATS_CLEANUP_PERIOD = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * The Bot API methods limited by default, the methods sending, forwarding, copying and editing messages which Telegram's flood limits apply to
+     */
+    public static final Set<String> DEFAULT_LIMITED_METHODS = Set.of(
+            "sendMessage", "sendPhoto", "sendAudio", "sendDocument", "sendVideo", "sendAnimation", "sendVoice", "sendVideoNote", "sendPaidMedia", "sendMediaGroup",
+            "sendLocation", "sendVenue", "sendContact", "sendPoll", "sendChecklist", "sendDice", "sendSticker", "sendInvoice", "sendGame",
+            "forwardMessage", "forwardMessages", "copyMessage", "copyMessages",
+            "editMessageText", "editMessageCaption", "editMessageMedia", "editMessageLiveLocation", "stopMessageLiveLocation", "editMessageReplyMarkup", "editMessageChecklist", "stopPoll");
+
+    private static final ClassValue<Optional<Method>> CHAT_ID_GETTERS = new ClassValue<>() {
+        @Override
+        protected Optional<Method> computeValue(Class<?> type) {
+            try {
+                return Optional.of(type.getMethod("getChatId"));
+            } catch (NoSuchMethodException e) {
+                return Optional.empty();
+            }
+        }
+    };
+
+    private final Set<String> limitedMethods;
+    private final RateLimit privateChatLimit;
+    private final RateLimit groupChatLimit;
+    private final TokenBucket globalBucket;
+    private final Map<String, ChatQueue> chats = new HashMap<>();
+    // Calls not bound to any chat take turns with the chats as well, they just skip the per chat bucket
+    private final ChatQueue unboundCalls = new ChatQueue(null);
+    private final ArrayDeque<ChatQueue> activeChats = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+    private long nextReleaseAt = Long.MAX_VALUE;
+
+    RateLimitedTelegramClient(RateLimitedTelegramClientBuilder builder) {
+        super(builder.delegate);
+        limitedMethods = Set.copyOf(builder.limitedMethods);
+        privateChatLimit = builder.privateChatLimit;
+        groupChatLimit = builder.groupChatLimit;
+        globalBucket = new TokenBucket(builder.globalLimit, System.nanoTime());
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, builder.threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::removeIdleChats, IDLE_CHATS_CLEANUP_PERIOD, IDLE_CHATS_CLEANUP_PERIOD, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    protected <R> R invoke(PartialBotApiMethod<?> method, Call<R> call) throws TelegramApiException {
+        final CompletableFuture<Void> permit = acquire(method);
+        if (permit != RELEASED) {
+            try {
+                permit.get();
+            } catch (InterruptedException e) {
+                permit.cancel(false);
+                Thread.currentThread().interrupt();
+                throw new TelegramApiException("Interrupted while waiting for rate limit", e);
+            } catch (ExecutionException | CancellationException e) {
+                throw new TelegramApiException("Rate limited call was cancelled", e);
+            }
+        }
+        return call.execute();
+    }
+
+    @Override
+    protected <R> CompletableFuture<R> invokeAsync(PartialBotApiMethod<?> method, AsyncCall<R> call) {
+        final CompletableFuture<Void> permit = acquire(method);
+        if (permit == RELEASED) {
+            return start(call);
+        }
+        return permit.thenCompose(ignored -> start(call));
+    }
+
+    /**
+     * @return the amount of calls waiting to be released
+     */
+    public int getQueuedCalls() {
+        lock.lock();
+        try {
+            int queued = 0;
+            for (ChatQueue chat : activeChats) {
+                queued += chat.pending.size();
+            }
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops releasing calls, the calls still waiting are failed
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+
+        final List<CompletableFuture<Void>> pending = new ArrayList<>();
+        lock.lock();
+        try {
+            for (ChatQueue chat : activeChats) {
+                pending.addAll(chat.pending);
+                chat.pending.clear();
+                chat.active = false;
+            }
+            activeChats.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        final TelegramApiException exception = new TelegramApiException("Rate limited client was closed");
+        pending.forEach(permit -> permit.completeExceptionally(exception));
+    }
+
+    /**
+     * @param method the method being executed
+     * @return future completed once the call may be executed
+     */
+    private CompletableFuture<Void> acquire(PartialBotApiMethod<?> method) {
+        if ((method == null) || !limitedMethods.contains(method.getMethod())) {
+            return RELEASED;
+        }
+
+        final String chatId = getChatId(method);
+        final CompletableFuture<Void> permit;
+        lock.lock();
+        try {
+            final long now = System.nanoTime();
+            final ChatQueue chat = chatId != null ? chats.computeIfAbsent(chatId, id -> new ChatQueue(new TokenBucket(isGroup(id) ? groupChatLimit : privateChatLimit, now))) : unboundCalls;
+
+            // Nobody is waiting, so the call may go right away when both buckets have a token
+            if (activeChats.isEmpty() && globalBucket.hasToken(now) && chat.tryAcquire(now)) {
+                globalBucket.consume();
+                return RELEASED;
+            }
+
+            permit = new CompletableFuture<>();
+            chat.pending.add(permit);
+            if (!chat.active) {
+                chat.active = true;
+                activeChats.addLast(chat);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        release();
+        return permit;
+    }
+
+    /**
+     * Releases as many queued calls as the buckets allow taking turns between the chats, then schedules itself for when the next token is available
+     */
+    private void release() {
+        List<CompletableFuture<Void>> released = null;
+        lock.lock();
+        try {
+            final long now = System.nanoTime();
+            long wait = Long.MAX_VALUE;
+            int blocked = 0;
+            while (!activeChats.isEmpty() && (blocked < activeChats.size())) {
+                final long globalWait = globalBucket.nanosUntilToken(now);
+                if (globalWait > 0) {
+                    wait = globalWait;
+                    break;
+                }
+
+                final ChatQueue chat = activeChats.pollFirst();
+                chat.pending.removeIf(CompletableFuture::isDone);
+                if (!chat.pending.isEmpty()) {
+                    if (chat.tryAcquire(now)) {
+                        globalBucket.consume();
+                        if (released == null) {
+                            released = new ArrayList<>();
+                        }
+                        released.add(chat.pending.poll());
+                        blocked = 0;
+                    } else {
+                        wait = Math.min(wait, chat.bucket.nanosUntilToken(now));
+                        blocked++;
+                    }
+                }
+
+                if (chat.pending.isEmpty()) {
+                    chat.active = false;
+                } else {
+                    activeChats.addLast(chat);
+                }
+            }
+
+            if (!activeChats.isEmpty() && (wait != Long.MAX_VALUE) && (now + wait < nextReleaseAt)) {
+                nextReleaseAt = now + wait;
+                try {
+                    scheduler.schedule(this::scheduledRelease, wait, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    LOGGER.debug("Rate limited client is closed, queued calls won't be released");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (released != null) {
+            released.forEach(permit -> permit.complete(null));
+        }
+    }
+
+    private void scheduledRelease() {
+        lock.lock();
+        try {
+            nextReleaseAt = Long.MAX_VALUE;
+        } finally {
+            lock.unlock();
+        }
+        release();
+    }
+
+    private void removeIdleChats() {
+        lock.lock();
+        try {
+            final long now = System.nanoTime();
+            chats.values().removeIf(chat -> !chat.active && chat.bucket.isFull(now));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param method the method being executed
+     * @return the chat id the method is sent to, {@code null} if the method isn't bound to a chat
+     */
+    private static String getChatId(PartialBotApiMethod<?> method) {
+        final Optional<Method> getter = CHAT_ID_GETTERS.get(method.getClass());
+        if (getter.isEmpty()) {
+            return null;
+        }
+
+        try {
+            final Object chatId = getter.get().invoke(method);
+            return chatId != null ? chatId.toString() : null;
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warn("Failed to resolve chat id of method: {}", method.getMethod(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @param chatId the chat id
+     * @return {@code true} for group, supergroup and channel ids and channel usernames, {@code false} for private chats
+     */
+    private static boolean isGroup(String chatId) {
+        return chatId.startsWith("-") || chatId.startsWith("@");
+    }
+
+    record RateLimit(int permits, Duration period) {
+        RateLimit {
+            if (permits < 1) {
+                throw new IllegalArgumentException("Permits must be at least 1!");
+            }
+            if ((period == null) || period.isNegative() || period.isZero()) {
+                throw new IllegalArgumentException("Period must be positive!");
+            }
+        }
+    }
+
+    private static final class ChatQueue {
+        private final TokenBucket bucket;
+        private final ArrayDeque<CompletableFuture<Void>> pending = new ArrayDeque<>();
+        private boolean active;
+
+        /**
+         * @param bucket the bucket of the chat, {@code null} for the calls not bound to any chat
+         */
+        private ChatQueue(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+
+        private boolean tryAcquire(long now) {
+            return (bucket == null) || bucket.tryAcquire(now);
+        }
+    }
+
+    /**
+     * Token bucket refilled continuously, holds up to the permits of its limit so bursts up to that amount pass right away
+     */
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double tokensPerNanosecond;
+        private double tokens;
+        private long updatedAt;
+
+        private TokenBucket(RateLimit limit, long now) {
+            capacity = limit.permits();
+            tokensPerNanosecond = limit.permits() / (double) limit.period().toNanos();
+            tokens = capacity;
+            updatedAt = now;
+        }
+
+        private void refill(long now) {
+            if (now > updatedAt) {
+                tokens = Math.min(capacity, tokens + ((now - updatedAt) * tokensPerNanosecond));
+                updatedAt = now;
+            }
+        }
+
+        private boolean hasToken(long now) {
+            refill(now);
+            return tokens >= 1;
+        }
+
+        private boolean tryAcquire(long now) {
+            if (hasToken(now)) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        private void consume() {
+            tokens -= 1;
+        }
+
+        private long nanosUntilToken(long now) {
+            refill(now);
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNanosecond);
+        }
+
+        private boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+    }
+}
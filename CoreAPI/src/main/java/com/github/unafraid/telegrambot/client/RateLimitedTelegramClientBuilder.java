@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.client;
+
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * @author UnAfraid
+ */
+public class RateLimitedTelegramClientBuilder {
+    final TelegramClient delegate;
+    RateLimitedTelegramClient.RateLimit globalLimit = new RateLimitedTelegramClient.RateLimit(30, Duration.ofSeconds(1));
+    RateLimitedTelegramClient.RateLimit privateChatLimit = new RateLimitedTelegramClient.RateLimit(1, Duration.ofSeconds(1));
+    RateLimitedTelegramClient.RateLimit groupChatLimit = new RateLimitedTelegramClient.RateLimit(20, Duration.ofMinutes(1));
+    String threadName = "TelegramRateLimiter";
+    Set<String> limitedMethods = RateLimitedTelegramClient.DEFAULT_LIMITED_METHODS;
+
+    /**
+     * @param delegate the client that executes the calls
+     */
+    public RateLimitedTelegramClientBuilder(TelegramClient delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "Telegram client cannot be null!");
+    }
+
+    /**
+     * Sets the limit of calls across all chats, by default 30 per second
+     *
+     * @param permits the amount of calls allowed per period
+     * @param period  the period
+     * @return this builder
+     */
+    public RateLimitedTelegramClientBuilder globalLimit(int permits, Duration period) {
+        this.globalLimit = new RateLimitedTelegramClient.RateLimit(permits, period);
+        return this;
+    }
+
+    /**
+     * Sets the limit of calls to a single private chat, by default 1 per second
+     *
+     * @param permits the amount of calls allowed per period
+     * @param period  the period
+     * @return this builder
+     */
+    public RateLimitedTelegramClientBuilder privateChatLimit(int permits, Duration period) {
+        this.privateChatLimit = new RateLimitedTelegramClient.RateLimit(permits, period);
+        return this;
+    }
+
+    /**
+     * Sets the limit of calls to a single group or channel, by default 20 per minute
+     *
+     * @param permits the amount of calls allowed per period
+     * @param period  the period
+     * @return this builder
+     */
+    public RateLimitedTelegramClientBuilder groupChatLimit(int permits, Duration period) {
+        this.groupChatLimit = new RateLimitedTelegramClient.RateLimit(permits, period);
+        return this;
+    }
+
+    /**
+     * Sets the Bot API methods that are limited, by default {@link RateLimitedTelegramClient#DEFAULT_LIMITED_METHODS}<br>
+     * The methods are matched by {@link org.telegram.telegrambots.meta.api.methods.botapimethods.PartialBotApiMethod#getMethod()}, only the calls bound to a chat are limited.
+     *
+     * @param limitedMethods the names of the limited methods, such as {@code sendMessage}
+     * @return this builder
+     */
+    public RateLimitedTelegramClientBuilder limitedMethods(Set<String> limitedMethods) {
+        Objects.requireNonNull(limitedMethods);
+        this.limitedMethods = Set.copyOf(limitedMethods);
+        return this;
+    }
+
+    /**
+     * Sets the name of the thread that releases queued calls
+     *
+     * @param threadName the thread name
+     * @return this builder
+     */
+    public RateLimitedTelegramClientBuilder threadName(String threadName) {
+        Objects.requireNonNull(threadName);
+        this.threadName = threadName;
+        return this;
+    }
+
+    /**
+     * @return the built rate limited client
+     */
+    public RateLimitedTelegramClient build() {
+        return new RateLimitedTelegramClient(this);
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.methods.botapimethods.PartialBotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiValidationException;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link org.telegram.telegrambots.meta.generics.TelegramClient} that retries failed calls instead of losing them.<br>
+ * Calls rejected with {@code retry_after} (429 Too Many Requests) are retried after the delay requested by Telegram,
+ * server (5xx) and network errors are retried with jittered exponential backoff, other errors fail right away.
+ * Network errors are retried only for the methods that can be safely repeated, see {@link #isIdempotent(PartialBotApiMethod)}, since the failed call may have reached Telegram already.
+ * Calls uploading a file from {@link java.io.InputStream} are never retried, the stream is consumed by the first attempt.
+ * Asynchronous calls are rescheduled on a timer without holding any thread while waiting, synchronous calls wait on the calling thread.<br>
+ * Retries are limited per call and by a budget shared by all calls.
+ *
+ * @author UnAfraid
+ */
+public class RetryingTelegramClient extends AbstractDelegatingTelegramClient {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryingTelegramClient.class);
+    private static final long NO_RETRY = -1;
+    private static final long BUDGET_UNIT = 1000;
+
+    /**
+     * The methods besides the ones reading data ({@code get*}) that are retried after network errors by default, repeating them leaves the same state behind
+     */
+    public static final Set<String> DEFAULT_IDEMPOTENT_METHODS = Set.of(
+            "setWebhook", "deleteWebhook", "setMyCommands", "deleteMyCommands", "setMyName", "setMyDescription", "setMyShortDescription",
+            "setChatMenuButton", "setMyDefaultAdministratorRights");
+
+    private static final ClassValue<List<Method>> MEDIA_GETTERS = new ClassValue<>() {
+        @Override
+        protected List<Method> computeValue(Class<?> type) {
+            final List<Method> getters = new ArrayList<>();
+            for (Method method : type.getMethods()) {
+                if ((method.getParameterCount() == 0) && method.getName().startsWith("get") && carriesMedia(method.getReturnType())) {
+                    getters.add(method);
+                }
+            }
+            return List.copyOf(getters);
+        }
+
+        private boolean carriesMedia(Class<?> type) {
+            return (type == InputFile.class) || Collection.class.isAssignableFrom(type) || STREAM_GETTERS.get(type).isPresent();
+        }
+    };
+
+    private static final ClassValue<Optional<Method>> STREAM_GETTERS = new ClassValue<>() {
+        @Override
+        protected Optional<Method> computeValue(Class<?> type) {
+            try {
+                return Optional.of(type.getMethod("getNewMediaStream"));
+            } catch (NoSuchMethodException e) {
+                return Optional.empty();
+            }
+        }
+    };
+
+    private final int maxRetries;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final long maxRetryAfter;
+    private final long budgetPerCall;
+    private final long maxBudget;
+    private final boolean retryNetworkErrors;
+    private final Set<String> idempotentMethods;
+    private final AtomicLong budget;
+
+    RetryingTelegramClient(RetryingTelegramClientBuilder builder) {
+        super(builder.delegate);
+        maxRetries = builder.maxRetries;
+        initialBackoff = builder.initialBackoff.toMillis();
+        maxBackoff = builder.maxBackoff.toMillis();
+        maxRetryAfter = builder.maxRetryAfter.toMillis();
+        budgetPerCall = Math.round(builder.retryBudgetRatio * BUDGET_UNIT);
+        maxBudget = builder.maxRetryBudget * BUDGET_UNIT;
+        retryNetworkErrors = builder.retryNetworkErrors;
+        idempotentMethods = Set.copyOf(builder.idempotentMethods);
+        budget = new AtomicLong(maxBudget);
+    }
+
+    @Override
+    protected <R> R invoke(PartialBotApiMethod<?> method, Call<R> call) throws TelegramApiException {
+        earnBudget();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return call.execute();
+            } catch (TelegramApiException e) {
+                final long delay = getRetryDelay(method, e, attempt);
+                if (delay == NO_RETRY) {
+                    throw e;
+                }
+
+                try {
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    e.addSuppressed(ie);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected <R> CompletableFuture<R> invokeAsync(PartialBotApiMethod<?> method, AsyncCall<R> call) {
+        earnBudget();
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        attempt(method, call, 0, result);
+        return result;
+    }
+
+    /**
+     * @return the amount of retries that may be spent right now
+     */
+    public long getRetryBudget() {
+        return budget.get() / BUDGET_UNIT;
+    }
+
+    private <R> void attempt(PartialBotApiMethod<?> method, AsyncCall<R> call, int attempt, CompletableFuture<R> result) {
+        start(call).whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                result.complete(response);
+                return;
+            }
+
+            final Throwable cause = unwrap(throwable);
+            final long delay = getRetryDelay(method, cause, attempt);
+            if (delay == NO_RETRY) {
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> attempt(method, call, attempt + 1, result));
+        });
+    }
+
+    /**
+     * @param method  the method being executed, {@code null} for file downloads
+     * @param error   the error the call failed with
+     * @param attempt the attempt that failed starting from 0
+     * @return the delay in milliseconds before the call is retried, {@link #NO_RETRY} if it shouldn't be retried
+     */
+    private long getRetryDelay(PartialBotApiMethod<?> method, Throwable error, int attempt) {
+        if ((attempt >= maxRetries) || hasStream(method)) {
+            return NO_RETRY;
+        }
+
+        final long delay;
+        if (error instanceof TelegramApiRequestException requestException) {
+            final ResponseParameters parameters = requestException.getParameters();
+            final Integer errorCode = requestException.getErrorCode();
+            if ((parameters != null) && (parameters.getRetryAfter() != null)) {
+                delay = TimeUnit.SECONDS.toMillis(parameters.getRetryAfter());
+                if (delay > maxRetryAfter) {
+                    return NO_RETRY;
+                }
+            } else if ((errorCode != null) && ((errorCode >= 500) || (errorCode == 429))) {
+                delay = getBackoff(attempt);
+            } else if ((errorCode == null) && retryNetworkErrors && isIdempotent(method)) {
+                delay = getBackoff(attempt);
+            } else {
+                return NO_RETRY;
+            }
+        } else if ((((error instanceof TelegramApiException) && !(error instanceof TelegramApiValidationException)) || (error instanceof IOException)) && retryNetworkErrors && isIdempotent(method)) {
+            delay = getBackoff(attempt);
+        } else {
+            return NO_RETRY;
+        }
+
+        if (!spendBudget()) {
+            LOGGER.warn("Retry budget exhausted, giving up on method: {}", method != null ? method.getMethod() : "downloadFile");
+            return NO_RETRY;
+        }
+
+        LOGGER.debug("Retrying method: {} in {}ms, attempt: {}", method != null ? method.getMethod() : "downloadFile", delay, attempt + 1, error);
+        return delay;
+    }
+
+    /**
+     * @param method the method being executed, {@code null} for file downloads
+     * @return {@code true} if the method reads data or is one of the idempotent methods so executing it twice does no harm, {@code false} otherwise
+     */
+    protected boolean isIdempotent(PartialBotApiMethod<?> method) {
+        if (method == null) {
+            return true;
+        }
+
+        final String name = method.getMethod();
+        return (name != null) && (name.startsWith("get") || idempotentMethods.contains(name));
+    }
+
+    /**
+     * @param method the method being executed, {@code null} for file downloads
+     * @return {@code true} if the method uploads a file from a stream, which can't be read again by another attempt
+     */
+    private static boolean hasStream(PartialBotApiMethod<?> method) {
+        return (method != null) && hasStream(method, 0);
+    }
+
+    private static boolean hasStream(Object value, int depth) {
+        if (value instanceof Collection<?> values) {
+            for (Object element : values) {
+                if ((element != null) && hasStream(element, depth)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        final Optional<Method> streamGetter = STREAM_GETTERS.get(value.getClass());
+        if (streamGetter.isPresent()) {
+            return invoke(streamGetter.get(), value) != null;
+        }
+
+        // Media wrappers such as input stickers hold their file one level deeper
+        if (depth < 2) {
+            for (Method getter : MEDIA_GETTERS.get(value.getClass())) {
+                final Object media = invoke(getter, value);
+                if ((media != null) && hasStream(media, depth + 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Object invoke(Method getter, Object target) {
+        try {
+            return getter.invoke(target);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warn("Failed to inspect {} of {}", getter.getName(), target.getClass().getSimpleName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @param attempt the attempt that failed starting from 0
+     * @return random delay up to the exponential backoff of the attempt
+     */
+    private long getBackoff(int attempt) {
+        final long backoff = Math.min(maxBackoff, initialBackoff << Math.min(attempt, 30));
+        return ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+    }
+
+    private void earnBudget() {
+        if (budgetPerCall > 0) {
+            budget.accumulateAndGet(budgetPerCall, (current, earned) -> Math.min(maxBudget, current + earned));
+        }
+    }
+
+    private boolean spendBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < BUDGET_UNIT) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - BUDGET_UNIT));
+        return true;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while (((throwable instanceof CompletionException) || (throwable instanceof ExecutionException)) && (throwable.getCause() != null)) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+}
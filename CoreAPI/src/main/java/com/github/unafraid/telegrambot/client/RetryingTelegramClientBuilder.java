@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.client;
+
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * @author UnAfraid
+ */
+public class RetryingTelegramClientBuilder {
+    final TelegramClient delegate;
+    int maxRetries = 3;
+    Duration initialBackoff = Duration.ofMillis(500);
+    Duration maxBackoff = Duration.ofSeconds(30);
+    Duration maxRetryAfter = Duration.ofMinutes(1);
+    double retryBudgetRatio = 0.2;
+    int maxRetryBudget = 100;
+    boolean retryNetworkErrors = true;
+    Set<String> idempotentMethods = RetryingTelegramClient.DEFAULT_IDEMPOTENT_METHODS;
+
+    /**
+     * @param delegate the client that executes the calls
+     */
+    public RetryingTelegramClientBuilder(TelegramClient delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "Telegram client cannot be null!");
+    }
+
+    /**
+     * Sets the maximum amount of retries of single call, by default 3
+     *
+     * @param maxRetries the maximum amount of retries
+     * @return this builder
+     */
+    public RetryingTelegramClientBuilder maxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries cannot be negative!");
+        }
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Sets the bounds of the exponential backoff used for server and network errors, by default from 500 milliseconds up to 30 seconds
+     *
+     * @param initialBackoff the backoff of the first retry
+     * @param maxBackoff     the maximum backoff
+     * @return this builder
+     */
+    public RetryingTelegramClientBuilder backoff(Duration initialBackoff, Duration maxBackoff) {
+        if ((initialBackoff == null) || initialBackoff.isNegative() || initialBackoff.isZero()) {
+            throw new IllegalArgumentException("Initial backoff must be positive!");
+        }
+        if ((maxBackoff == null) || (maxBackoff.compareTo(initialBackoff) < 0)) {
+            throw new IllegalArgumentException("Max backoff cannot be lower than the initial backoff!");
+        }
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    /**
+     * Sets the longest retry_after delay requested by Telegram that is still waited for, calls asked to wait longer fail right away, by default 1 minute
+     *
+     * @param maxRetryAfter the maximum retry after delay
+     * @return this builder
+     */
+    public RetryingTelegramClientBuilder maxRetryAfter(Duration maxRetryAfter) {
+        if ((maxRetryAfter == null) || maxRetryAfter.isNegative()) {
+            throw new IllegalArgumentException("Max retry after cannot be negative!");
+        }
+        this.maxRetryAfter = maxRetryAfter;
+        return this;
+    }
+
+    /**
+     * Sets the retry budget shared by all calls, every call earns {@code ratio} retries up to {@code maxBudget} and every retry spends one<br>
+     * Once the budget is spent failed calls aren't retried, so an outage doesn't multiply the load on Telegram, by default 0.2 and 100.
+     *
+     * @param ratio     the retries earned per call
+     * @param maxBudget the maximum amount of retries saved up
+     * @return this builder
+     */
+    public RetryingTelegramClientBuilder retryBudget(double ratio, int maxBudget) {
+        if ((ratio < 0) || (maxBudget < 0)) {
+            throw new IllegalArgumentException("Retry budget cannot be negative!");
+        }
+        this.retryBudgetRatio = ratio;
+        this.maxRetryBudget = maxBudget;
+        return this;
+    }
+
+    /**
+     * Sets the methods besides the ones reading data ({@code get*}) that are retried after network errors, by default {@link RetryingTelegramClient#DEFAULT_IDEMPOTENT_METHODS}<br>
+     * Add a method only if executing it twice does no harm, the call failed due to network error may have reached Telegram already.
+     *
+     * @param idempotentMethods the names of the idempotent methods, such as {@code setWebhook}
+     * @return this builder
+     */
+    public RetryingTelegramClientBuilder idempotentMethods(Set<String> idempotentMethods) {
+        Objects.requireNonNull(idempotentMethods);
+        this.idempotentMethods = Set.copyOf(idempotentMethods);
+        return this;
+    }
+
+    /**
+     * Disables retrying calls failed due to network errors, by default only the idempotent methods are retried
+     *
+     * @return this builder
+     */
+    public RetryingTelegramClientBuilder noNetworkErrorRetries() {
+        this.retryNetworkErrors = false;
+        return this;
+    }
+
+    /**
+     * @return the built retrying client
+     */
+    public RetryingTelegramClient build() {
+        return new RetryingTelegramClient(this);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.dispatch;
+
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors the updates are dispatched on<br>
+ * Virtual threads are looked up reflectively so the library keeps running on Java 17 and picks them up on Java 21+.
+ *
+ * @author UnAfraid
+ */
+public final class DispatchExecutors {
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+    private static final Method BUILDER_NAME = findMethod(findClass("java.lang.Thread$Builder"), "name", String.class, long.class);
+    private static final Method BUILDER_FACTORY = findMethod(findClass("java.lang.Thread$Builder"), "factory");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = findMethod(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    private DispatchExecutors() {
+    }
+
+    /**
+     * @return {@code true} if the running JVM supports virtual threads, {@code false} otherwise
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return (OF_VIRTUAL != null) && (BUILDER_NAME != null) && (BUILDER_FACTORY != null) && (NEW_THREAD_PER_TASK_EXECUTOR != null);
+    }
+
+    /**
+     * Creates executor that starts new virtual thread for every task
+     *
+     * @param threadName the thread name prefix
+     * @return the executor, {@code null} if virtual threads aren't supported by the running JVM
+     */
+    public static ExecutorService newVirtualThreadExecutor(String threadName) {
+        if (!isVirtualThreadsSupported()) {
+            return null;
+        }
+
+        try {
+            final Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), threadName + "-", 1L);
+            final ThreadFactory threadFactory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates executor with fixed amount of daemon platform threads
+     *
+     * @param workers    the amount of threads
+     * @param threadName the thread name prefix
+     * @return the executor
+     */
+    public static ExecutorService newPlatformThreadExecutor(int workers, String threadName) {
+        return new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), newDaemonThreadFactory(threadName));
+    }
+
+    /**
+     * Creates executor with fixed amount of daemon platform threads that picks the waiting tasks in the given order instead of the order they were submitted
+     *
+     * @param workers    the amount of threads
+     * @param threadName the thread name prefix
+     * @param taskOrder  the order of the waiting tasks
+     * @return the executor
+     */
+    public static ExecutorService newPriorityPlatformThreadExecutor(int workers, String threadName, Comparator<Runnable> taskOrder) {
+        return new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(11, taskOrder), newDaemonThreadFactory(threadName));
+    }
+
+    private static ThreadFactory newDaemonThreadFactory(String threadName) {
+        final AtomicInteger threadId = new AtomicInteger();
+        return runnable -> {
+            final Thread thread = new Thread(runnable, threadName + "-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Class<?> findClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method findMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        if (clazz == null) {
+            return null;
+        }
+
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
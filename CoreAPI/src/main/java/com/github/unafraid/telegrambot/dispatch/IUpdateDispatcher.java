@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.dispatch;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.List;
+
+/**
+ * Decides on which thread and in what order the updates received by the bot are processed
+ *
+ * @author UnAfraid
+ */
+public interface IUpdateDispatcher extends AutoCloseable {
+    /**
+     * Dispatches single update received by the bot to the processor, updates are passed in the order they were received
+     *
+     * @param update    the update
+     * @param type      the type of the update
+     * @param processor the processor that notifies the handlers about single update
+     */
+    void dispatch(Update update, UpdateType type, IUpdateProcessor processor);
+
+    /**
+     * Classifies the updates received by the bot and dispatches them to the processor
+     *
+     * @param updates   the updates in the order they were received
+     * @param processor the processor that notifies the handlers about single update
+     */
+    default void dispatch(List<Update> updates, IUpdateProcessor processor) {
+        for (Update update : updates) {
+            dispatch(update, UpdateType.of(update), processor);
+        }
+    }
+
+    /**
+     * Stops accepting new updates and releases the resources held by the dispatcher
+     */
+    @Override
+    default void close() {
+    }
+}
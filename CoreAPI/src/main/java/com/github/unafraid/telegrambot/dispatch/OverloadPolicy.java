@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.dispatch;
+
+/**
+ * Decides what {@link ParallelUpdateDispatcher} does with an update that doesn't fit into the queues<br>
+ * Callback queries and payment updates are never dropped, they are queued over the limits instead.<br>
+ * The dropping policies look for the update to drop in the same chat when the per chat limit is reached and in any chat when the global limit is reached.
+ *
+ * @author UnAfraid
+ */
+public enum OverloadPolicy {
+    /**
+     * The thread receiving updates waits until there is space, nothing is dropped
+     */
+    BLOCK,
+    /**
+     * The oldest update waiting is dropped to make space, the lowest lane of the chat is looked at first
+     */
+    DROP_OLDEST,
+    /**
+     * The oldest low priority update waiting in any lane is dropped to make space, if there is none the received update is dropped
+     */
+    DROP_LOW_PRIORITY,
+    /**
+     * The received update is dropped
+     */
+    REJECT
+}
@@ -0,0 +1,570 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.dispatch;
+
+import com.github.unafraid.telegrambot.metrics.IBotMetrics;
+import com.github.unafraid.telegrambot.util.UpdateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Processes updates of different chats in parallel while keeping the updates of every single chat in the order they were received<br>
+ * Every chat has its own bounded queue, at most one worker processes a chat at a time.<br>
+ * When the handlers of an update complete asynchronously the chat is resumed once they are done, without holding a worker meanwhile.<br>
+ * Updates that don't fit into the per chat or the global limit are handled according to the {@link OverloadPolicy}, callback queries and payment updates are never dropped.
+ * When the per chat limit is reached the update to drop is looked for in the same chat, when the global limit is reached it's looked for in any chat.<br>
+ * Every update type belongs to an {@link UpdateLane}, the chat takes its pending updates from the highest lane first and the workers of the platform thread pool pick the chats waiting in higher lanes first.
+ * On virtual threads no chat waits for a worker, so the lanes order the updates within the chat only.
+ * The order is kept within each lane of a chat, an update of a higher lane may overtake updates of the same chat waiting in lower lanes but it's never processed concurrently with them.
+ * Updates that waited past the deadline of their type are passed to the {@link IExpiredUpdateHandler} instead of being processed.
+ *
+ * @author UnAfraid
+ */
+public class ParallelUpdateDispatcher implements IUpdateDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelUpdateDispatcher.class);
+
+    /**
+     * The key of updates that don't belong to any chat or user
+     */
+    private static final long NO_CHAT = 0;
+
+    /**
+     * The update types that are time critical and never dropped
+     */
+    private static final EnumSet<UpdateType> PROTECTED_UPDATE_TYPES = EnumSet.of(UpdateType.CALLBACK_QUERY, UpdateType.SHIPPING_QUERY, UpdateType.PRE_CHECKOUT_QUERY);
+
+    /**
+     * The deadline of updates that may wait forever
+     */
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * Chats waiting in higher lanes first, in the order they were scheduled within the same lane
+     */
+    private static final Comparator<Runnable> TASK_ORDER = Comparator.comparingInt(ParallelUpdateDispatcher::laneOf).thenComparingLong(ParallelUpdateDispatcher::sequenceOf);
+
+    private static final UpdateLane[] LANES = UpdateLane.values();
+
+    private final ExecutorService executor;
+    private final int maxQueuedUpdatesPerChat;
+    private final int maxUpdatesPerTurn;
+    private final OverloadPolicy overloadPolicy;
+    private final Semaphore capacity;
+    private final EnumSet<UpdateType> lowPriorityUpdateTypes;
+    private final IBotMetrics metrics;
+    private final UpdateLane[] lanes = new UpdateLane[UpdateType.values().length];
+    private final long[] deadlines = new long[UpdateType.values().length];
+    private final IExpiredUpdateHandler expiredUpdateHandler;
+    private final LongAdder droppedUpdates = new LongAdder();
+    private final LongAdder expiredUpdates = new LongAdder();
+    private final AtomicLong scheduleSequence = new AtomicLong();
+    private final AtomicInteger sheddableUpdates = new AtomicInteger();
+    private final Map<Long, ChatQueue> chatQueues = new ConcurrentHashMap<>();
+
+    /**
+     * Creates new parallel update dispatcher from builder
+     *
+     * @param builder the builder
+     */
+    public ParallelUpdateDispatcher(ParallelUpdateDispatcherBuilder builder) {
+        this.executor = builder.executor != null ? builder.executor : createExecutor(builder);
+        this.maxQueuedUpdatesPerChat = builder.maxQueuedUpdatesPerChat;
+        this.maxUpdatesPerTurn = builder.maxUpdatesPerTurn;
+        this.overloadPolicy = builder.overloadPolicy;
+        this.capacity = builder.maxQueuedUpdates != Integer.MAX_VALUE ? new Semaphore(builder.maxQueuedUpdates) : null;
+        this.lowPriorityUpdateTypes = EnumSet.copyOf(builder.lowPriorityUpdateTypes);
+        this.metrics = builder.metrics;
+        this.expiredUpdateHandler = builder.expiredUpdateHandler;
+        for (UpdateType type : UpdateType.values()) {
+            lanes[type.ordinal()] = builder.lanes.getOrDefault(type, UpdateLane.NORMAL);
+            final Duration deadline = builder.deadlines.get(type);
+            deadlines[type.ordinal()] = deadline != null ? deadline.toNanos() : NO_DEADLINE;
+        }
+    }
+
+    private static ExecutorService createExecutor(ParallelUpdateDispatcherBuilder builder) {
+        if (builder.virtualThreads) {
+            // Every chat with pending updates gets its own virtual thread, blocking handlers no longer hold up the other chats
+            final ExecutorService executor = DispatchExecutors.newVirtualThreadExecutor(builder.threadName);
+            if (executor != null) {
+                return executor;
+            }
+            LOGGER.info("Virtual threads aren't supported by the running JVM, falling back to {} platform threads", builder.workers);
+        }
+
+        // Every chat occupies at most one task so the queue is bounded by the amount of chats with pending updates
+        return DispatchExecutors.newPriorityPlatformThreadExecutor(builder.workers, builder.threadName, TASK_ORDER);
+    }
+
+    private static int laneOf(Runnable task) {
+        return task instanceof ChatQueue queue ? queue.priority : UpdateLane.NORMAL.ordinal();
+    }
+
+    private static long sequenceOf(Runnable task) {
+        return task instanceof ChatQueue queue ? queue.sequence : 0;
+    }
+
+    @Override
+    public void dispatch(Update update, UpdateType type, IUpdateProcessor processor) {
+        final Long chatId = UpdateUtil.getChatId(update, type);
+        final long key = chatId != null ? chatId : NO_CHAT;
+        final boolean isProtected = PROTECTED_UPDATE_TYPES.contains(type);
+        final UpdateLane lane = lanes[type.ordinal()];
+        final long deadline = deadlines[type.ordinal()];
+        boolean permit = false;
+        try {
+            // Protected updates don't count towards the global limit, so they are never held up by it
+            if ((capacity != null) && !isProtected) {
+                if (overloadPolicy == OverloadPolicy.BLOCK) {
+                    capacity.acquire();
+                    permit = true;
+                } else {
+                    permit = capacity.tryAcquire() || shed(type);
+                }
+            }
+
+            final QueuedUpdate queuedUpdate = new QueuedUpdate(update, processor, type, isProtected, permit, deadline != NO_DEADLINE ? System.nanoTime() + deadline : NO_DEADLINE);
+            while (chatQueues.computeIfAbsent(key, ChatQueue::new).offer(queuedUpdate, lane) == OfferResult.RETIRED) {
+                // The queue was retired right after we got it, a fresh one is created on next attempt
+            }
+            permit = false;
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Update dispatcher is closed, dropping update: {}", update);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting for chat {} to catch up, dropping update: {}", key, update);
+        } finally {
+            if (permit) {
+                capacity.release();
+            }
+        }
+    }
+
+    /**
+     * Drops a queued update of any chat the overload policy allows to, so the received update can take its permit of the global limit<br>
+     * The chats are walked only while there are such updates queued, the first chat found having one gives it up.
+     *
+     * @param type the type of the received update
+     * @return {@code true} if an update was dropped and its permit belongs to the caller, {@code false} otherwise
+     */
+    private boolean shed(UpdateType type) {
+        if ((overloadPolicy == OverloadPolicy.REJECT) || ((overloadPolicy == OverloadPolicy.DROP_LOW_PRIORITY) && lowPriorityUpdateTypes.contains(type))) {
+            return false;
+        }
+
+        if (sheddableUpdates.get() > 0) {
+            for (ChatQueue queue : chatQueues.values()) {
+                if ((queue.sheddable > 0) && queue.shed()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param update the queued update
+     * @return {@code true} if the update holds a permit of the global limit and the overload policy allows dropping it, {@code false} otherwise
+     */
+    private boolean isSheddable(QueuedUpdate update) {
+        if (!update.permit()) {
+            return false;
+        }
+
+        return switch (overloadPolicy) {
+            case DROP_OLDEST -> !update.isProtected();
+            case DROP_LOW_PRIORITY -> lowPriorityUpdateTypes.contains(update.type());
+            default -> false;
+        };
+    }
+
+    /**
+     * @return the amount of updates dropped due to overload
+     */
+    public long getDroppedUpdates() {
+        return droppedUpdates.sum();
+    }
+
+    private void onDropped(QueuedUpdate update, long chatId, boolean releasePermit) {
+        if (releasePermit && update.permit()) {
+            capacity.release();
+        }
+
+        droppedUpdates.increment();
+        LOGGER.debug("Dispatcher is overloaded, dropping {} update of chat {}: {}", update.type(), chatId, update.update().getUpdateId());
+        if (metrics != null) {
+            try {
+                metrics.onUpdateDropped(update.type());
+            } catch (Exception e) {
+                LOGGER.warn("Failed to record dropped update", e);
+            }
+        }
+    }
+
+    /**
+     * @return the amount of updates discarded because they waited past their deadline
+     */
+    public long getExpiredUpdates() {
+        return expiredUpdates.sum();
+    }
+
+    private void onExpired(QueuedUpdate update, long chatId) {
+        expiredUpdates.increment();
+        LOGGER.debug("Discarding {} update of chat {} that waited past its deadline: {}", update.type(), chatId, update.update().getUpdateId());
+        if (metrics != null) {
+            try {
+                metrics.onUpdateExpired(update.type());
+            } catch (Exception e) {
+                LOGGER.warn("Failed to record expired update", e);
+            }
+        }
+
+        if (expiredUpdateHandler != null) {
+            try {
+                expiredUpdateHandler.onExpired(update.update(), update.type());
+            } catch (Exception e) {
+                LOGGER.error("Uncaught exception while handling expired update of chat {}: {}", chatId, update.update(), e);
+            }
+        }
+    }
+
+    /**
+     * @return the amount of chats that have updates waiting to be processed
+     */
+    public int getActiveChats() {
+        return chatQueues.size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOGGER.warn("Update dispatcher didn't finish processing pending updates in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Update waiting to be processed along with the processor of the bot that received it
+     *
+     * @param update      the update
+     * @param processor   the processor
+     * @param type        the type of the update
+     * @param isProtected whether the update may be dropped
+     * @param permit      whether the update holds a permit of the global limit
+     * @param deadline    the {@link System#nanoTime()} after which the update is no longer processed
+     */
+    private record QueuedUpdate(Update update, IUpdateProcessor processor, UpdateType type, boolean isProtected, boolean permit, long deadline) {
+        private QueuedUpdate withPermit() {
+            return new QueuedUpdate(update, processor, type, isProtected, true, deadline);
+        }
+
+        private boolean isExpired(long now) {
+            return (deadline != NO_DEADLINE) && ((now - deadline) > 0);
+        }
+    }
+
+    private enum OfferResult {
+        QUEUED,
+        DROPPED,
+        RETIRED
+    }
+
+    /**
+     * The updates of single chat waiting to be processed, one deque per lane
+     */
+    private final class ChatQueue implements Runnable {
+        private final long chatId;
+        private final ArrayDeque<QueuedUpdate>[] updates;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private int size;
+        private volatile int sheddable;
+        private boolean scheduled;
+        private boolean retired;
+        private volatile int priority;
+        private volatile long sequence;
+
+        @SuppressWarnings("unchecked")
+        private ChatQueue(long chatId) {
+            this.chatId = chatId;
+            this.updates = new ArrayDeque[LANES.length];
+            for (int i = 0; i < updates.length; i++) {
+                updates[i] = new ArrayDeque<>();
+            }
+        }
+
+        /**
+         * Hands this queue to the executor with the priority of the highest lane having updates, behind the other chats of the same lane scheduled so far<br>
+         * A chat scheduled for lower lane isn't promoted when an update of higher lane arrives meanwhile, that update is still processed before the lower lanes once the chat runs.
+         */
+        private void schedule() {
+            lock.lock();
+            try {
+                priority = firstLane();
+            } finally {
+                lock.unlock();
+            }
+            sequence = scheduleSequence.incrementAndGet();
+            executor.execute(this);
+        }
+
+        /**
+         * @return the ordinal of the highest lane having updates, {@link UpdateLane#NORMAL} when there are none
+         */
+        private int firstLane() {
+            for (int i = 0; i < updates.length; i++) {
+                if (!updates[i].isEmpty()) {
+                    return i;
+                }
+            }
+            return UpdateLane.NORMAL.ordinal();
+        }
+
+        /**
+         * @param update the update to queue
+         * @param lane   the lane of the update
+         * @return {@link OfferResult#RETIRED} if this queue is retired and a new one has to be used, {@link OfferResult#DROPPED} if the update was dropped due to overload
+         * @throws InterruptedException if interrupted while waiting for space in the queue
+         */
+        private OfferResult offer(QueuedUpdate update, UpdateLane lane) throws InterruptedException {
+            lock.lock();
+            try {
+                if (overloadPolicy == OverloadPolicy.BLOCK) {
+                    while (!retired && !update.isProtected() && (size >= maxQueuedUpdatesPerChat)) {
+                        notFull.await();
+                    }
+                }
+
+                // The worker may have drained and retired this queue while we were waiting
+                if (retired) {
+                    return OfferResult.RETIRED;
+                }
+
+                // Without a permit the global limit is reached
+                final boolean full = (size >= maxQueuedUpdatesPerChat) || ((capacity != null) && !update.permit());
+                if (full && !update.isProtected()) {
+                    final QueuedUpdate made = makeRoom(update);
+                    if (made == null) {
+                        onDropped(update, chatId, true);
+                        return OfferResult.DROPPED;
+                    }
+                    update = made;
+                }
+
+                updates[lane.ordinal()].add(update);
+                added(update);
+                if (!scheduled) {
+                    try {
+                        schedule();
+                    } catch (RejectedExecutionException e) {
+                        removed(updates[lane.ordinal()].pollLast());
+                        throw e;
+                    }
+                    scheduled = true;
+                }
+                return OfferResult.QUEUED;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Drops a queued update of any lane according to the overload policy, the permit of the dropped update is passed to the received one
+         *
+         * @param update the received update
+         * @return the received update to queue, {@code null} if there is no room for it
+         */
+        private QueuedUpdate makeRoom(QueuedUpdate update) {
+            final QueuedUpdate dropped = switch (overloadPolicy) {
+                case DROP_OLDEST -> evict(queued -> !queued.isProtected());
+                case DROP_LOW_PRIORITY -> lowPriorityUpdateTypes.contains(update.type()) ? null : evict(queued -> lowPriorityUpdateTypes.contains(queued.type()));
+                default -> null;
+            };
+            if (dropped == null) {
+                return null;
+            }
+
+            final boolean transferPermit = dropped.permit() && !update.permit();
+            onDropped(dropped, chatId, !transferPermit);
+            return transferPermit ? update.withPermit() : update;
+        }
+
+        /**
+         * Looks from the lowest lane up, so the bulk traffic of the chat is dropped before the updates the user is waiting for
+         *
+         * @param filter the filter of updates that may be dropped
+         * @return the oldest queued update of the lowest lane matching the filter removed from the queue, {@code null} if there is none
+         */
+        private QueuedUpdate evict(Predicate<QueuedUpdate> filter) {
+            for (int i = updates.length - 1; i >= 0; i--) {
+                final Iterator<QueuedUpdate> iterator = updates[i].iterator();
+                while (iterator.hasNext()) {
+                    final QueuedUpdate queued = iterator.next();
+                    if (filter.test(queued)) {
+                        iterator.remove();
+                        removed(queued);
+                        return queued;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Drops the oldest update of the lowest lane that may be dropped to free a permit of the global limit
+         *
+         * @return {@code true} if an update was dropped and its permit is passed to the caller, {@code false} otherwise
+         */
+        private boolean shed() {
+            lock.lock();
+            try {
+                final QueuedUpdate dropped = evict(ParallelUpdateDispatcher.this::isSheddable);
+                if (dropped == null) {
+                    return false;
+                }
+
+                notFull.signal();
+                onDropped(dropped, chatId, false);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void added(QueuedUpdate update) {
+            size++;
+            if (isSheddable(update)) {
+                sheddable++;
+                sheddableUpdates.incrementAndGet();
+            }
+        }
+
+        private void removed(QueuedUpdate update) {
+            size--;
+            if (isSheddable(update)) {
+                sheddable--;
+                sheddableUpdates.decrementAndGet();
+            }
+        }
+
+        /**
+         * @return the oldest update of the highest lane having updates, {@code null} if there are none
+         */
+        private QueuedUpdate poll() {
+            for (ArrayDeque<QueuedUpdate> lane : updates) {
+                final QueuedUpdate update = lane.poll();
+                if (update != null) {
+                    removed(update);
+                    return update;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void run() {
+            int processed = 0;
+            while (true) {
+                if (processed++ == maxUpdatesPerTurn) {
+                    // Give the other chats a chance before continuing with this one
+                    try {
+                        schedule();
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // Shutting down, finish the pending updates right away
+                    }
+                }
+
+                final QueuedUpdate update;
+                lock.lock();
+                try {
+                    update = poll();
+                    if (update == null) {
+                        scheduled = false;
+                        retired = true;
+                        chatQueues.remove(chatId, this);
+                        return;
+                    }
+                    notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+
+                if (update.permit()) {
+                    capacity.release();
+                }
+
+                if (update.isExpired(System.nanoTime())) {
+                    onExpired(update, chatId);
+                    continue;
+                }
+
+                final CompletableFuture<?> result;
+                try {
+                    result = update.processor().process(update.update(), update.type()).toCompletableFuture();
+                } catch (Exception e) {
+                    LOGGER.error("Uncaught exception while processing update of chat {}: {}", chatId, update.update(), e);
+                    continue;
+                }
+
+                if (!result.isDone()) {
+                    // Continue with the next update of this chat once the current one is done
+                    result.whenComplete((ignored, throwable) -> resume());
+                    return;
+                }
+            }
+        }
+
+        private void resume() {
+            try {
+                schedule();
+            } catch (RejectedExecutionException e) {
+                // Shutting down, finish the pending updates right away
+                run();
+            }
+        }
+    }
+}
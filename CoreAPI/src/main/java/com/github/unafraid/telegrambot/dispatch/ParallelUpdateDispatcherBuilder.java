@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.dispatch;
+
+import com.github.unafraid.telegrambot.metrics.IBotMetrics;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * @author UnAfraid
+ */
+public class ParallelUpdateDispatcherBuilder {
+    int workers = Runtime.getRuntime().availableProcessors();
+    int maxQueuedUpdatesPerChat = 100;
+    int maxUpdatesPerTurn = 16;
+    String threadName = "UpdateDispatcher";
+    boolean virtualThreads;
+    ExecutorService executor;
+    int maxQueuedUpdates = Integer.MAX_VALUE;
+    OverloadPolicy overloadPolicy = OverloadPolicy.BLOCK;
+    Set<UpdateType> lowPriorityUpdateTypes = EnumSet.of(UpdateType.EDITED_MESSAGE, UpdateType.CHANNEL_POST, UpdateType.EDITED_CHANNEL_POST, UpdateType.POLL);
+    IBotMetrics metrics;
+    final Map<UpdateType, UpdateLane> lanes = new EnumMap<>(UpdateType.class);
+    final Map<UpdateType, Duration> deadlines = new EnumMap<>(UpdateType.class);
+    IExpiredUpdateHandler expiredUpdateHandler;
+
+    public ParallelUpdateDispatcherBuilder() {
+        for (UpdateType type : EnumSet.of(UpdateType.CALLBACK_QUERY, UpdateType.INLINE_QUERY, UpdateType.CHOSEN_INLINE_QUERY, UpdateType.SHIPPING_QUERY, UpdateType.PRE_CHECKOUT_QUERY)) {
+            lanes.put(type, UpdateLane.INTERACTIVE);
+        }
+        for (UpdateType type : EnumSet.of(UpdateType.EDITED_MESSAGE, UpdateType.CHANNEL_POST, UpdateType.EDITED_CHANNEL_POST, UpdateType.POLL)) {
+            lanes.put(type, UpdateLane.BULK);
+        }
+
+        // Past these the user has given up waiting or Telegram no longer accepts the answer
+        deadlines.put(UpdateType.CALLBACK_QUERY, Duration.ofSeconds(15));
+        deadlines.put(UpdateType.INLINE_QUERY, Duration.ofSeconds(10));
+        deadlines.put(UpdateType.PRE_CHECKOUT_QUERY, Duration.ofSeconds(10));
+    }
+
+    /**
+     * Sets the amount of platform threads processing updates, ignored when custom executor is provided or virtual threads are used
+     *
+     * @param workers the amount of worker threads
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder workers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1!");
+        }
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * Processes every chat on its own virtual thread when running on Java 21 or newer, on older versions the platform thread pool is used instead<br>
+     * Recommended when handlers block on network or database calls, ignored when custom executor is provided.<br>
+     * Chats no longer wait for a free worker, so the {@link #lane(UpdateType, UpdateLane) lanes} order the updates within every chat only,
+     * updates of higher lanes in other chats don't go ahead of the chats already running.
+     *
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder virtualThreads() {
+        this.virtualThreads = true;
+        return this;
+    }
+
+    /**
+     * Sets the maximum amount of updates of single chat waiting to be processed, once reached the {@link #overloadPolicy(OverloadPolicy) overload policy} decides:
+     * <ul>
+     * <li>{@link OverloadPolicy#BLOCK} - the thread receiving updates waits until the chat catches up</li>
+     * <li>{@link OverloadPolicy#DROP_OLDEST} - the oldest update waiting in the chat is dropped, starting from its lowest lane</li>
+     * <li>{@link OverloadPolicy#DROP_LOW_PRIORITY} - the oldest low priority update waiting in the chat is dropped, if there is none the received update is dropped</li>
+     * <li>{@link OverloadPolicy#REJECT} - the received update is dropped</li>
+     * </ul>
+     * Callback queries and payment updates are never dropped, they are queued over the limit instead.
+     *
+     * @param maxQueuedUpdatesPerChat the maximum amount of updates queued per chat
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder maxQueuedUpdatesPerChat(int maxQueuedUpdatesPerChat) {
+        if (maxQueuedUpdatesPerChat < 1) {
+            throw new IllegalArgumentException("Max queued updates per chat must be at least 1!");
+        }
+        this.maxQueuedUpdatesPerChat = maxQueuedUpdatesPerChat;
+        return this;
+    }
+
+    /**
+     * Sets the maximum amount of updates of all chats waiting to be processed, by default only the per chat limit applies
+     *
+     * @param maxQueuedUpdates the maximum amount of updates queued
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder maxQueuedUpdates(int maxQueuedUpdates) {
+        if (maxQueuedUpdates < 1) {
+            throw new IllegalArgumentException("Max queued updates must be at least 1!");
+        }
+        this.maxQueuedUpdates = maxQueuedUpdates;
+        return this;
+    }
+
+    /**
+     * Sets what happens to updates that don't fit into the per chat or the global limit, by default the thread receiving updates waits for space
+     *
+     * @param overloadPolicy the overload policy
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder overloadPolicy(OverloadPolicy overloadPolicy) {
+        Objects.requireNonNull(overloadPolicy);
+        this.overloadPolicy = overloadPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the update types dropped first by {@link OverloadPolicy#DROP_LOW_PRIORITY}, by default edited messages, channel posts and polls
+     *
+     * @param lowPriorityUpdateTypes the low priority update types
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder lowPriorityUpdateTypes(Set<UpdateType> lowPriorityUpdateTypes) {
+        Objects.requireNonNull(lowPriorityUpdateTypes);
+        this.lowPriorityUpdateTypes = EnumSet.noneOf(UpdateType.class);
+        this.lowPriorityUpdateTypes.addAll(lowPriorityUpdateTypes);
+        return this;
+    }
+
+    /**
+     * Sets the metrics notified about dropped and expired updates
+     *
+     * @param metrics the metrics
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder metrics(IBotMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Sets the lane the updates of given type are queued in, by default callback, inline and payment queries are {@link UpdateLane#INTERACTIVE},
+     * edited messages, channel posts and polls are {@link UpdateLane#BULK} and the rest {@link UpdateLane#NORMAL}<br>
+     * The order of updates is kept per chat within single lane only.
+     * With the platform thread pool the chats waiting in higher lanes are also picked first by the workers, with {@link #virtualThreads()} every chat runs right away so the lanes apply within the chat only.
+     *
+     * @param type the update type
+     * @param lane the lane
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder lane(UpdateType type, UpdateLane lane) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(lane);
+        this.lanes.put(type, lane);
+        return this;
+    }
+
+    /**
+     * Sets how long the updates of given type may wait to be processed, counting from when the dispatcher received them, older updates are passed to the expired update handler instead<br>
+     * By default callback queries expire after 15 seconds, inline and pre-checkout queries after 10 seconds.
+     *
+     * @param type     the update type
+     * @param deadline the deadline
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder deadline(UpdateType type, Duration deadline) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(deadline);
+        if (deadline.isNegative() || deadline.isZero()) {
+            throw new IllegalArgumentException("Deadline must be positive!");
+        }
+        this.deadlines.put(type, deadline);
+        return this;
+    }
+
+    /**
+     * Processes the updates of given type no matter how long they have waited
+     *
+     * @param type the update type
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder noDeadline(UpdateType type) {
+        Objects.requireNonNull(type);
+        this.deadlines.remove(type);
+        return this;
+    }
+
+    /**
+     * Sets the handler of updates that waited past their deadline, by default they are discarded
+     *
+     * @param expiredUpdateHandler the expired update handler
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder expiredUpdateHandler(IExpiredUpdateHandler expiredUpdateHandler) {
+        this.expiredUpdateHandler = expiredUpdateHandler;
+        return this;
+    }
+
+    /**
+     * Sets the amount of updates of single chat processed before the worker moves on to other chats
+     *
+     * @param maxUpdatesPerTurn the maximum amount of updates processed per chat in a row
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder maxUpdatesPerTurn(int maxUpdatesPerTurn) {
+        if (maxUpdatesPerTurn < 1) {
+            throw new IllegalArgumentException("Max updates per turn must be at least 1!");
+        }
+        this.maxUpdatesPerTurn = maxUpdatesPerTurn;
+        return this;
+    }
+
+    /**
+     * Sets the name prefix of the worker threads, ignored when custom executor is provided
+     *
+     * @param threadName the thread name prefix
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder threadName(String threadName) {
+        Objects.requireNonNull(threadName);
+        this.threadName = threadName;
+        return this;
+    }
+
+    /**
+     * Sets custom executor to process updates on, the executor is shut down when the dispatcher is closed<br>
+     * Lanes are kept separate but the executor decides the order they are picked in.
+     *
+     * @param executor the executor
+     * @return this builder
+     */
+    public ParallelUpdateDispatcherBuilder executor(ExecutorService executor) {
+        Objects.requireNonNull(executor);
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * @return the built parallel update dispatcher
+     */
+    public ParallelUpdateDispatcher build() {
+        return new ParallelUpdateDispatcher(this);
+    }
+}
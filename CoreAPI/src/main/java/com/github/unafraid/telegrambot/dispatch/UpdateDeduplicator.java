@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.dispatch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Drops updates that were already received, which happens after long polling reconnects or webhook retries<br>
+ * Remembers a sliding window of the most recent update ids in a bitset ring, so memory is constant and checking an update is few bit operations.
+ * Update ids older than the window are let through as they can't be told apart from updates never seen, the window is kept so a late update doesn't make the recent ones look new.
+ * Only when such id arrives after long time without updates a new window is started, since Telegram may restart the ids from a random value after a week without updates.
+ *
+ * @author UnAfraid
+ */
+public class UpdateDeduplicator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpdateDeduplicator.class);
+
+    /**
+     * The time without updates after which an update id older than the window is taken as restart of the ids
+     */
+    public static final Duration DEFAULT_RESTART_IDLE_TIME = Duration.ofDays(1);
+
+    private final long[] seen;
+    private final int window;
+    private final long restartIdleTime;
+    private long highest = Long.MIN_VALUE;
+    private long lastReceived;
+
+    /**
+     * @param window the amount of most recent update ids remembered, rounded up to multiple of 64
+     */
+    public UpdateDeduplicator(int window) {
+        this(window, DEFAULT_RESTART_IDLE_TIME);
+    }
+
+    /**
+     * @param window          the amount of most recent update ids remembered, rounded up to multiple of 64
+     * @param restartIdleTime the time without updates after which an update id older than the window starts a new window
+     */
+    public UpdateDeduplicator(int window, Duration restartIdleTime) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1!");
+        }
+        if ((restartIdleTime == null) || restartIdleTime.isNegative()) {
+            throw new IllegalArgumentException("Restart idle time cannot be negative!");
+        }
+        this.seen = new long[(window + (Long.SIZE - 1)) / Long.SIZE];
+        this.window = seen.length * Long.SIZE;
+        this.restartIdleTime = restartIdleTime.toNanos();
+    }
+
+    /**
+     * Marks the update id as seen
+     *
+     * @param updateId the update id
+     * @return {@code true} if the update id was already seen, {@code false} otherwise
+     */
+    public synchronized boolean isDuplicate(int updateId) {
+        final long id = updateId;
+        final long now = System.nanoTime();
+        final long idleTime = now - lastReceived;
+        lastReceived = now;
+        if ((highest != Long.MIN_VALUE) && (id <= highest - window) && (idleTime < restartIdleTime)) {
+            // Late update, whether it was seen is no longer known so it's let through
+            return false;
+        }
+
+        if ((highest == Long.MIN_VALUE) || (id <= highest - window)) {
+            // First update or the ids restarted, start over
+            clear();
+            highest = id;
+        } else if (id > highest) {
+            if ((id - highest) >= window) {
+                clear();
+            } else {
+                for (long i = highest + 1; i < id; i++) {
+                    clearBit(i);
+                }
+            }
+            highest = id;
+        } else if (isSet(id)) {
+            return true;
+        }
+
+        setBit(id);
+        return false;
+    }
+
+    /**
+     * @param updates the received updates
+     * @return the updates that weren't seen before, the same list if there are no duplicates
+     */
+    public List<Update> filter(List<Update> updates) {
+        List<Update> result = null;
+        for (int i = 0; i < updates.size(); i++) {
+            final Update update = updates.get(i);
+            final Integer updateId = update.getUpdateId();
+            if ((updateId != null) && isDuplicate(updateId)) {
+                LOGGER.debug("Dropping duplicate update: {}", updateId);
+                if (result == null) {
+                    result = new ArrayList<>(updates.subList(0, i));
+                }
+            } else if (result != null) {
+                result.add(update);
+            }
+        }
+        return result != null ? result : updates;
+    }
+
+    /**
+     * @return the amount of most recent update ids remembered
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    private void clear() {
+        Arrays.fill(seen, 0);
+    }
+
+    private boolean isSet(long id) {
+        final int bit = bit(id);
+        return (seen[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private void setBit(long id) {
+        final int bit = bit(id);
+        seen[bit >>> 6] |= 1L << bit;
+    }
+
+    private void clearBit(long id) {
+        final int bit = bit(id);
+        seen[bit >>> 6] &= ~(1L << bit);
+    }
+
+    private int bit(long id) {
+        return (int) Math.floorMod(id, (long) window);
+    }
+}
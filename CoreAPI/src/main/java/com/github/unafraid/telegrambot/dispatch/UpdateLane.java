@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.dispatch;
+
+/**
+ * The lane of {@link ParallelUpdateDispatcher} an update is queued in, chats waiting in higher lanes are picked by the workers first<br>
+ * Every chat keeps separate queue per lane and takes the highest lane first, so time critical updates never wait behind the bulk traffic of the same chat.
+ * The updates of single chat are still processed one at a time, no matter the lane.
+ *
+ * @author UnAfraid
+ */
+public enum UpdateLane {
+    /**
+     * Updates the user is actively waiting for, such as callback queries, inline queries and payment queries
+     */
+    INTERACTIVE,
+    /**
+     * Regular messages and everything else
+     */
+    NORMAL,
+    /**
+     * Updates that can wait, such as edited messages, channel posts and polls
+     */
+    BULK
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.dispatch;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * The kinds of updates dispatched by {@link com.github.unafraid.telegrambot.bots.AbstractTelegramBot}
+ *
+ * @author UnAfraid
+ */
+public enum UpdateType {
+    CHOSEN_INLINE_QUERY,
+    INLINE_QUERY,
+    CALLBACK_QUERY,
+    EDITED_MESSAGE,
+    CHANNEL_POST,
+    EDITED_CHANNEL_POST,
+    SHIPPING_QUERY,
+    PRE_CHECKOUT_QUERY,
+    POLL,
+    POLL_ANSWER,
+    MY_CHAT_MEMBER,
+    CHAT_MEMBER,
+    CHAT_JOIN_REQUEST,
+    DOCUMENT,
+    COMMAND,
+    MESSAGE,
+    UNKNOWN;
+
+    /**
+     * Classifies the update the same way the bot picks its handlers, messages are classified as {@link #MESSAGE} since telling commands apart requires the registered handlers
+     *
+     * @param update the update
+     * @return the type of the update
+     */
+    public static UpdateType of(Update update) {
+        if (update.hasChosenInlineQuery()) {
+            return CHOSEN_INLINE_QUERY;
+        } else if (update.hasInlineQuery()) {
+            return INLINE_QUERY;
+        } else if (update.hasCallbackQuery()) {
+            return CALLBACK_QUERY;
+        } else if (update.hasEditedMessage()) {
+            return EDITED_MESSAGE;
+        } else if (update.hasChannelPost()) {
+            return CHANNEL_POST;
+        } else if (update.hasEditedChannelPost()) {
+            return EDITED_CHANNEL_POST;
+        } else if (update.hasShippingQuery()) {
+            return SHIPPING_QUERY;
+        } else if (update.hasPreCheckoutQuery()) {
+            return PRE_CHECKOUT_QUERY;
+        } else if (update.hasPoll()) {
+            return POLL;
+        } else if (update.hasPollAnswer()) {
+            return POLL_ANSWER;
+        } else if (update.hasMyChatMember()) {
+            return MY_CHAT_MEMBER;
+        } else if (update.hasChatMember()) {
+            return CHAT_MEMBER;
+        } else if (update.hasChatJoinRequest()) {
+            return CHAT_JOIN_REQUEST;
+        } else if (update.hasMessage()) {
+            return update.getMessage().hasDocument() ? DOCUMENT : MESSAGE;
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.handlers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.telegram.telegrambots.meta.api.objects.User;
+
+/**
+ * Access level validator that caches the decisions of another validator by user id and required access level<br>
+ * The delegate's decision must depend only on the user and {@link ITelegramHandler#getRequiredAccessLevel()}, not on the handler itself.<br>
+ * Concurrent lookups of the same decision wait for single call of the delegate. When the cache is full decisions are evicted by the CLOCK algorithm, the ones not used since the last sweep go first.<br>
+ * This class is thread-safe
+ *
+ * @author UnAfraid
+ */
+public class CachingAccessLevelValidator implements IAccessLevelValidator {
+	private final IAccessLevelValidator delegate;
+	private final long ttlNanos;
+	private final long negativeTtlNanos;
+	private final int maxSize;
+	private final Map<CacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
+	// The clock hand sweeps this queue, replaced and invalidated entries stay in it until swept
+	private final Queue<CacheEntry> clock = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger clockSize = new AtomicInteger();
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	
+	/**
+	 * Creates new caching access level validator that caches both granted and refused access for the same time
+	 *
+	 * @param delegate the validator which decisions are cached
+	 * @param ttl      how long a decision is cached
+	 * @param maxSize  the maximum amount of cached decisions
+	 */
+	public CachingAccessLevelValidator(IAccessLevelValidator delegate, Duration ttl, int maxSize) {
+		this(delegate, ttl, ttl, maxSize);
+	}
+	
+	/**
+	 * Creates new caching access level validator
+	 *
+	 * @param delegate    the validator which decisions are cached
+	 * @param ttl         how long granted access is cached
+	 * @param negativeTtl how long refused access is cached, {@link Duration#ZERO} to always ask the delegate again
+	 * @param maxSize     the maximum amount of cached decisions
+	 */
+	public CachingAccessLevelValidator(IAccessLevelValidator delegate, Duration ttl, Duration negativeTtl, int maxSize) {
+		Objects.requireNonNull(delegate);
+		Objects.requireNonNull(ttl);
+		Objects.requireNonNull(negativeTtl);
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Max size must be at least 1!");
+		}
+		
+		this.delegate = delegate;
+		this.ttlNanos = ttl.toNanos();
+		this.negativeTtlNanos = negativeTtl.toNanos();
+		this.maxSize = maxSize;
+	}
+	
+	@Override
+	public boolean validate(ITelegramHandler handler, User user) {
+		if ((user == null) || (user.getId() == null)) {
+			return delegate.validate(handler, user);
+		}
+		
+		final CacheKey key = new CacheKey(user.getId(), handler.getRequiredAccessLevel());
+		while (true) {
+			final CacheEntry entry = cache.get(key);
+			if (entry == null) {
+				final CacheEntry created = new CacheEntry(key);
+				if (cache.putIfAbsent(key, created) == null) {
+					return load(handler, user, created);
+				}
+			} else if (!entry.decision.isDone()) {
+				// Another thread is asking the delegate already
+				return await(entry);
+			} else if ((System.nanoTime() - entry.expiresAt) < 0) {
+				entry.markUsed();
+				return entry.decision.join();
+			} else {
+				final CacheEntry created = new CacheEntry(key);
+				if (cache.replace(key, entry, created)) {
+					return load(handler, user, created);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Asks the delegate for the decision of the entry just put into the cache
+	 *
+	 * @param handler the handler
+	 * @param user    the user
+	 * @param entry   the pending entry
+	 * @return the decision
+	 */
+	private boolean load(ITelegramHandler handler, User user, CacheEntry entry) {
+		final boolean allowed;
+		try {
+			allowed = delegate.validate(handler, user);
+		} catch (RuntimeException | Error e) {
+			cache.remove(entry.key, entry);
+			entry.decision.completeExceptionally(e);
+			throw e;
+		}
+		
+		final long ttl = allowed ? ttlNanos : negativeTtlNanos;
+		if (ttl > 0) {
+			entry.expiresAt = System.nanoTime() + ttl;
+			clock.add(entry);
+			clockSize.incrementAndGet();
+		} else {
+			cache.remove(entry.key, entry);
+		}
+		entry.decision.complete(allowed);
+		
+		if (ttl > 0) {
+			evict();
+		}
+		return allowed;
+	}
+	
+	private static boolean await(CacheEntry entry) {
+		try {
+			return entry.decision.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			if (e.getCause() instanceof Error error) {
+				throw error;
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Sweeps the clock until the maximum size is respected and the swept out entries are dropped, the cost of each sweep is paid by the insertions that caused it
+	 */
+	private void evict() {
+		while (needsEviction() && evictionLock.tryLock()) {
+			try {
+				final long now = System.nanoTime();
+				for (int budget = clockSize.get(); (budget > 0) && needsEviction(); budget--) {
+					final CacheEntry entry = clock.poll();
+					if (entry == null) {
+						break;
+					}
+					
+					if (cache.get(entry.key) != entry) {
+						// Replaced or invalidated meanwhile
+						clockSize.decrementAndGet();
+					} else if ((cache.size() > maxSize) && (!entry.used || ((now - entry.expiresAt) >= 0))) {
+						cache.remove(entry.key, entry);
+						clockSize.decrementAndGet();
+					} else {
+						entry.used = false;
+						clock.add(entry);
+					}
+				}
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * @return {@code true} if the cache is over the maximum size or the clock holds as many swept out entries as the maximum size, {@code false} otherwise
+	 */
+	private boolean needsEviction() {
+		return (cache.size() > maxSize) || (clockSize.get() > (2L * maxSize));
+	}
+	
+	/**
+	 * Drops all cached decisions of the user, use it whenever user's permissions are changed
+	 *
+	 * @param userId the user id
+	 */
+	public void invalidate(long userId) {
+		cache.keySet().removeIf(key -> key.userId == userId);
+	}
+	
+	/**
+	 * Drops the cached decision of the user for particular access level
+	 *
+	 * @param userId      the user id
+	 * @param accessLevel the required access level
+	 */
+	public void invalidate(long userId, int accessLevel) {
+		cache.remove(new CacheKey(userId, accessLevel));
+	}
+	
+	/**
+	 * Drops all cached decisions
+	 */
+	public void invalidateAll() {
+		cache.clear();
+	}
+	
+	/**
+	 * @return the amount of cached decisions, expired ones included
+	 */
+	public int size() {
+		return cache.size();
+	}
+	
+	/**
+	 * @return the validator which decisions are cached
+	 */
+	public IAccessLevelValidator getDelegate() {
+		return delegate;
+	}
+	
+	private record CacheKey(long userId, int accessLevel) {
+	}
+	
+	private static final class CacheEntry {
+		final CacheKey key;
+		final CompletableFuture<Boolean> decision = new CompletableFuture<>();
+		volatile long expiresAt;
+		volatile boolean used;
+		
+		CacheEntry(CacheKey key) {
+			this.key = key;
+		}
+		
+		void markUsed() {
+			// Written only once per sweep to keep the hits from contending on the same cache line
+			if (!used) {
+				used = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.handlers;
+
+import org.telegram.telegrambots.meta.api.objects.User;
+
+/**
+ * Access level validator that resolves the user to a single access level, the user has access to all handlers which required access level is lower or equal to it<br>
+ * Since the result doesn't depend on the handler the bot resolves the user once per update and picks the handlers from lists precomputed per access level, instead of validating every handler.
+ *
+ * @author UnAfraid
+ */
+@FunctionalInterface
+public interface IAccessLevelResolver extends IAccessLevelValidator {
+	/**
+	 * @param user the user to resolve
+	 * @return the access level of the user
+	 */
+	int resolveAccessLevel(User user);
+	
+	/**
+	 * Must not be overridden with logic that differs from comparing the levels, the bot doesn't call it when picking handlers for an update
+	 */
+	@Override
+	default boolean validate(ITelegramHandler handler, User user) {
+		return resolveAccessLevel(user) >= handler.getRequiredAccessLevel();
+	}
+}
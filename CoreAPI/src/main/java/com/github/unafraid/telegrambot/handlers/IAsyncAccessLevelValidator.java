@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.handlers;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+import org.telegram.telegrambots.meta.api.objects.User;
+
+/**
+ * Non-blocking counterpart of {@link IAccessLevelValidator} for permission backends that are slow or asynchronous by nature
+ *
+ * @author UnAfraid
+ */
+@FunctionalInterface
+public interface IAsyncAccessLevelValidator {
+	/**
+	 * @param handler the handler
+	 * @param user    the user to validate
+	 * @return stage completed with {@code true} if {@link User} has sufficient access level, {@code false} otherwise
+	 */
+	CompletionStage<Boolean> validateAsync(ITelegramHandler handler, User user);
+	
+	/**
+	 * Adapts synchronous validator, the validation runs on the calling thread
+	 *
+	 * @param validator the synchronous validator
+	 * @return the asynchronous validator
+	 */
+	static IAsyncAccessLevelValidator of(IAccessLevelValidator validator) {
+		Objects.requireNonNull(validator);
+		return (handler, user) -> {
+			try {
+				return CompletableFuture.completedFuture(validator.validate(handler, user));
+			} catch (Exception e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		};
+	}
+	
+	/**
+	 * Adapts synchronous validator, the validation runs on the executor so the thread dispatching updates never blocks on it
+	 *
+	 * @param validator the synchronous validator
+	 * @param executor  the executor to run the validation on
+	 * @return the asynchronous validator
+	 */
+	static IAsyncAccessLevelValidator of(IAccessLevelValidator validator, Executor executor) {
+		Objects.requireNonNull(validator);
+		Objects.requireNonNull(executor);
+		return (handler, user) -> CompletableFuture.supplyAsync(() -> validator.validate(handler, user), executor);
+	}
+}
@@ -21,6 +21,7 @@
  */
 package com.github.unafraid.telegrambot.handlers;
 
+import java.util.Collections;
 import java.util.List;
 
 import com.github.unafraid.telegrambot.bots.AbstractTelegramBot;
@@ -33,10 +34,17 @@ import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
  */
 public interface ICommandHandler extends ITelegramHandler {
 	/**
-	 * @return The command that will trigger @{link onCommandMessage} method
+	 * @return The command that will trigger {@link #onCommandMessage(AbstractTelegramBot, Update, Message, List)} method
 	 */
 	String getCommand();
 	
+	/**
+	 * @return Alternative names that will trigger {@link #onCommandMessage(AbstractTelegramBot, Update, Message, List)} method as well, matched case-insensitively just like {@link #getCommand()}
+	 */
+	default List<String> getAliases() {
+		return Collections.emptyList();
+	}
+	
 	/**
 	 * @return The usage of the command whenever user types in /command without parameters some commands may return that if requires arguments to be supplied
 	 */
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.handlers.async;
+
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Blocking bridge used by the synchronous methods of the asynchronous handlers
+ *
+ * @author UnAfraid
+ */
+final class AsyncHandlers {
+	private AsyncHandlers() {
+	}
+	
+	/**
+	 * @param stage the stage returned by the handler
+	 * @return {@code true} if the handler consumed the update, {@code false} otherwise
+	 * @throws TelegramApiException the exception the stage completed with
+	 */
+	static boolean awaitConsumed(CompletionStage<Boolean> stage) throws TelegramApiException {
+		return Boolean.TRUE.equals(await(stage));
+	}
+	
+	/**
+	 * @param stage the stage returned by the handler
+	 * @param <T>   the type of the result
+	 * @return the result of the stage
+	 * @throws TelegramApiException the exception the stage completed with
+	 */
+	static <T> T await(CompletionStage<T> stage) throws TelegramApiException {
+		try {
+			return stage.toCompletableFuture().join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof TelegramApiException apiException) {
+				throw apiException;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.handlers.async;
+
+import com.github.unafraid.telegrambot.bots.AbstractTelegramBot;
+import com.github.unafraid.telegrambot.handlers.IChatJoinRequestHandler;
+import org.telegram.telegrambots.meta.api.objects.ChatJoinRequest;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Asynchronous {@link IChatJoinRequestHandler}, the bot notifies the next handler once the returned stage completes without holding a thread meanwhile
+ *
+ * @author UnAfraid
+ */
+public interface IAsyncChatJoinRequestHandler extends IChatJoinRequestHandler {
+	/**
+	 * Fired whenever chat join request is received
+	 *
+	 * @param bot             the bot
+	 * @param update          the update
+	 * @param chatJoinRequest the chat join request
+	 * @return stage completed with {@code true} if handler 'consumed' that event, aborting notification to other handlers, {@code false} otherwise, continuing to look for handler that would return {@code true}
+	 * @throws TelegramApiException the exception
+	 */
+	CompletionStage<Boolean> onChatJoinRequestAsync(AbstractTelegramBot bot, Update update, ChatJoinRequest chatJoinRequest) throws TelegramApiException;
+	
+	/**
+	 * Waits for {@link #onChatJoinRequestAsync(AbstractTelegramBot, Update, ChatJoinRequest)} to complete, the bot never calls it
+	 */
+	@Override
+	default boolean onChatJoinRequest(AbstractTelegramBot bot, Update update, ChatJoinRequest chatJoinRequest) throws TelegramApiException {
+		return AsyncHandlers.awaitConsumed(onChatJoinRequestAsync(bot, update, chatJoinRequest));
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.handlers.async;
+
+import com.github.unafraid.telegrambot.bots.AbstractTelegramBot;
+import com.github.unafraid.telegrambot.handlers.ICommandHandler;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Asynchronous {@link ICommandHandler}, the bot moves on to the next update of the chat once the returned stage completes without holding a thread meanwhile
+ *
+ * @author UnAfraid
+ */
+public interface IAsyncCommandHandler extends ICommandHandler {
+	/**
+	 * Fired when user types in /command arg0 arg1 arg2..
+	 *
+	 * @param bot     the bot
+	 * @param update  the update
+	 * @param message the message
+	 * @param args    the arguments after command separated by space or wrapped within "things here are considered one arg"
+	 * @return stage completed once the command is handled
+	 * @throws TelegramApiException the exception
+	 */
+	CompletionStage<Void> onCommandMessageAsync(AbstractTelegramBot bot, Update update, Message message, List<String> args) throws TelegramApiException;
+	
+	/**
+	 * Waits for {@link #onCommandMessageAsync(AbstractTelegramBot, Update, Message, List)} to complete, the bot never calls it
+	 */
+	@Override
+	default void onCommandMessage(AbstractTelegramBot bot, Update update, Message message, List<String> args) throws TelegramApiException {
+		AsyncHandlers.await(onCommandMessageAsync(bot, update, message, args));
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.metrics;
+
+import com.github.unafraid.telegrambot.dispatch.UpdateType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The measurements of single handler for single update type
+ *
+ * @author UnAfraid
+ */
+public final class HandlerStats {
+    private static final HandlerOutcome[] OUTCOMES = HandlerOutcome.values();
+
+    private final UpdateType updateType;
+    private final Class<?> handlerClass;
+    private final LongAdder[] outcomes = new LongAdder[OUTCOMES.length];
+    private final LatencyHistogram wallTime = new LatencyHistogram();
+    private final LatencyHistogram clientTime = new LatencyHistogram();
+
+    HandlerStats(UpdateType updateType, Class<?> handlerClass) {
+        this.updateType = updateType;
+        this.handlerClass = handlerClass;
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    void record(HandlerOutcome outcome, long wallTimeNanos, long clientTimeNanos) {
+        outcomes[outcome.ordinal()].increment();
+        wallTime.record(wallTimeNanos);
+        clientTime.record(clientTimeNanos);
+    }
+
+    /**
+     * @return the type of the updates the handler was notified about
+     */
+    public UpdateType getUpdateType() {
+        return updateType;
+    }
+
+    /**
+     * @return the class of the handler
+     */
+    public Class<?> getHandlerClass() {
+        return handlerClass;
+    }
+
+    /**
+     * @param outcome the outcome
+     * @return how many times the handler ended up with the given outcome
+     */
+    public long getCount(HandlerOutcome outcome) {
+        return outcomes[outcome.ordinal()].sum();
+    }
+
+    /**
+     * @return the histogram of the time the handler took
+     */
+    public LatencyHistogram getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * @return the histogram of the time the handler spent in synchronous Telegram client calls
+     */
+    public LatencyHistogram getClientTime() {
+        return clientTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: consumed=%d passed=%d exception=%d mean=%.3fms p99=%dus max=%dus client mean=%.3fms",
+                updateType, handlerClass.getName(), getCount(HandlerOutcome.CONSUMED), getCount(HandlerOutcome.PASSED), getCount(HandlerOutcome.EXCEPTION),
+                wallTime.getMean(TimeUnit.MILLISECONDS), wallTime.getPercentile(99, TimeUnit.MICROSECONDS), wallTime.getMax(TimeUnit.MICROSECONDS), clientTime.getMean(TimeUnit.MILLISECONDS));
+    }
+}
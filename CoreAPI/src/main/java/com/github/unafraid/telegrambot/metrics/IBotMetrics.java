@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.metrics;
+
+import com.github.unafraid.telegrambot.dispatch.UpdateType;
+
+/**
+ * Receives the measurements of the bot's dispatching, implementations are called on the threads processing updates so they must be thread-safe and cheap
+ *
+ * @author UnAfraid
+ */
+public interface IBotMetrics {
+    /**
+     * Called after each handler notified about an update
+     *
+     * @param updateType      the type of the update
+     * @param handlerClass    the class of the handler
+     * @param outcome         the outcome of the handler
+     * @param wallTimeNanos   the time the handler took in nanoseconds
+     * @param clientTimeNanos the part of the wall time spent in synchronous Telegram client calls in nanoseconds
+     */
+    void onHandlerInvoked(UpdateType updateType, Class<?> handlerClass, HandlerOutcome outcome, long wallTimeNanos, long clientTimeNanos);
+
+    /**
+     * Called after an update is processed by all of its handlers
+     *
+     * @param updateType    the type of the update
+     * @param wallTimeNanos the time the update took in nanoseconds, including waiting for asynchronous access level validation
+     */
+    default void onUpdateProcessed(UpdateType updateType, long wallTimeNanos) {
+    }
+
+    /**
+     * Called when an overloaded dispatcher drops an update
+     *
+     * @param updateType the type of the update
+     */
+    default void onUpdateDropped(UpdateType updateType) {
+    }
+
+    /**
+     * Called when the dispatcher discards an update that waited past its deadline
+     *
+     * @param updateType the type of the update
+     */
+    default void onUpdateExpired(UpdateType updateType) {
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.metrics;
+
+import com.github.unafraid.telegrambot.dispatch.UpdateType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link IBotMetrics} that keeps the measurements in memory, recording is lock-free once the handler was seen for the first time
+ *
+ * @author UnAfraid
+ */
+public class InMemoryBotMetrics implements IBotMetrics {
+    private static final UpdateType[] UPDATE_TYPES = UpdateType.values();
+
+    private final Map<Class<?>, HandlerStats>[] handlerStats;
+    private final LatencyHistogram[] updateTimes = new LatencyHistogram[UPDATE_TYPES.length];
+    private final LongAdder[] droppedUpdates = new LongAdder[UPDATE_TYPES.length];
+    private final LongAdder[] expiredUpdates = new LongAdder[UPDATE_TYPES.length];
+
+    @SuppressWarnings("unchecked")
+    public InMemoryBotMetrics() {
+        handlerStats = new Map[UPDATE_TYPES.length];
+        for (int i = 0; i < UPDATE_TYPES.length; i++) {
+            handlerStats[i] = new ConcurrentHashMap<>();
+            updateTimes[i] = new LatencyHistogram();
+            droppedUpdates[i] = new LongAdder();
+            expiredUpdates[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onHandlerInvoked(UpdateType updateType, Class<?> handlerClass, HandlerOutcome outcome, long wallTimeNanos, long clientTimeNanos) {
+        final Map<Class<?>, HandlerStats> stats = handlerStats[updateType.ordinal()];
+        HandlerStats handler = stats.get(handlerClass);
+        if (handler == null) {
+            handler = stats.computeIfAbsent(handlerClass, type -> new HandlerStats(updateType, type));
+        }
+        handler.record(outcome, wallTimeNanos, clientTimeNanos);
+    }
+
+    @Override
+    public void onUpdateProcessed(UpdateType updateType, long wallTimeNanos) {
+        updateTimes[updateType.ordinal()].record(wallTimeNanos);
+    }
+
+    @Override
+    public void onUpdateDropped(UpdateType updateType) {
+        droppedUpdates[updateType.ordinal()].increment();
+    }
+
+    /**
+     * @param updateType the type of the update
+     * @return the amount of updates of the given type dropped due to overload
+     */
+    public long getDroppedUpdates(UpdateType updateType) {
+        return droppedUpdates[updateType.ordinal()].sum();
+    }
+
+    @Override
+    public void onUpdateExpired(UpdateType updateType) {
+        expiredUpdates[updateType.ordinal()].increment();
+    }
+
+    /**
+     * @param updateType the type of the update
+     * @return the amount of updates of the given type discarded because they waited past their deadline
+     */
+    public long getExpiredUpdates(UpdateType updateType) {
+        return expiredUpdates[updateType.ordinal()].sum();
+    }
+
+    /**
+     * @param updateType the type of the update
+     * @return the histogram of the time the updates of the given type took
+     */
+    public LatencyHistogram getUpdateTime(UpdateType updateType) {
+        return updateTimes[updateType.ordinal()];
+    }
+
+    /**
+     * @return the measurements of all handlers, the handlers that took the most time in total first
+     */
+    public List<HandlerStats> getHandlerStats() {
+        final List<HandlerStats> result = new ArrayList<>();
+        for (Map<Class<?>, HandlerStats> stats : handlerStats) {
+            result.addAll(stats.values());
+        }
+        result.sort(Comparator.comparingLong((HandlerStats stats) -> stats.getWallTime().getTotal(TimeUnit.NANOSECONDS)).reversed());
+        return result;
+    }
+
+    /**
+     * Clears all measurements
+     */
+    public void reset() {
+        for (int i = 0; i < UPDATE_TYPES.length; i++) {
+            handlerStats[i].clear();
+            updateTimes[i].reset();
+            droppedUpdates[i].reset();
+            expiredUpdates[i].reset();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass tokenizer of command messages, tokens are separated by whitespace and "things here are considered one arg"
+ *
+ * @author UnAfraid
+ */
+public class CommandTokenizer {
+    /**
+     * @param text the message's text
+     * @return the first token of the text as is (quotes included), {@code null} if the text is blank
+     */
+    public static String parseCommand(String text) {
+        final int start = skipWhitespace(text, 0);
+        if (start == text.length()) {
+            return null;
+        }
+        return text.substring(start, tokenEnd(text, start));
+    }
+
+    /**
+     * @param text the message's text
+     * @return the tokens after the command, quoted tokens are returned without the quotes
+     */
+    public static List<String> parseArguments(String text) {
+        final List<String> args = new ArrayList<>();
+        int index = skipWhitespace(text, 0);
+        if (index == text.length()) {
+            return args;
+        }
+
+        // Skip the command itself
+        index = tokenEnd(text, index);
+        while ((index = skipWhitespace(text, index)) < text.length()) {
+            final int quotedEnd = quotedTokenEnd(text, index);
+            if (quotedEnd != -1) {
+                args.add(text.substring(index + 1, quotedEnd - 1));
+                index = quotedEnd;
+            } else {
+                final int end = plainTokenEnd(text, index);
+                args.add(text.substring(index, end));
+                index = end;
+            }
+        }
+        return args;
+    }
+
+    private static int tokenEnd(String text, int start) {
+        final int quotedEnd = quotedTokenEnd(text, start);
+        return quotedEnd != -1 ? quotedEnd : plainTokenEnd(text, start);
+    }
+
+    /**
+     * @return the index after the closing quote, {@code -1} if the token at {@code start} isn't quoted or the quote is never closed
+     */
+    private static int quotedTokenEnd(String text, int start) {
+        if (text.charAt(start) != '"') {
+            return -1;
+        }
+
+        final int closingQuote = text.indexOf('"', start + 1);
+        return closingQuote != -1 ? closingQuote + 1 : -1;
+    }
+
+    private static int plainTokenEnd(String text, int start) {
+        int index = start;
+        while ((index < text.length()) && !isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipWhitespace(String text, int start) {
+        int index = start;
+        while ((index < text.length()) && isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Matches the same characters as {@code \s} of {@link java.util.regex.Pattern}
+     */
+    private static boolean isWhitespace(char c) {
+        return (c == ' ') || (c == '\t') || (c == '\n') || (c == '\u000B') || (c == '\f') || (c == '\r');
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.util;
+
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * Concurrent map of primitive {@code long} keys to objects, the keys aren't boxed and the entries need no node objects<br>
+ * The map is split into segments guarded by their own {@link StampedLock}, every segment is an open addressing table with linear probing, lookups are optimistic and lock only when they race with a write.
+ * Null values aren't permitted.
+ *
+ * @param <V> the type of the values
+ * @author UnAfraid
+ */
+public class ConcurrentLongObjectMap<V> {
+    private static final int DEFAULT_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 8;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    /**
+     * Creates new map with the default amount of segments
+     */
+    public ConcurrentLongObjectMap() {
+        this(DEFAULT_SEGMENTS, 0);
+    }
+
+    /**
+     * Creates new map
+     *
+     * @param concurrencyLevel the estimated amount of threads writing concurrently, rounded up to power of two segments
+     * @param initialCapacity  the amount of entries the map holds without resizing
+     */
+    public ConcurrentLongObjectMap(int concurrencyLevel, int initialCapacity) {
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("Concurrency level must be at least 1!");
+        }
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity must not be negative!");
+        }
+
+        final int segmentCount = tableSize(concurrencyLevel);
+        final int segmentCapacity = tableSize(Math.max(MIN_SEGMENT_CAPACITY, (int) Math.ceil(initialCapacity / (double) segmentCount / LOAD_FACTOR)));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * @param key the key
+     * @return the value of the key or {@code null} if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        final long hash = hash(key);
+        return (V) segmentFor(hash).get(key, (int) hash);
+    }
+
+    /**
+     * @param key the key
+     * @return {@code true} if the map contains the key, {@code false} otherwise
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key   the key
+     * @param value the value
+     * @return the previous value of the key or {@code null} if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value);
+        final long hash = hash(key);
+        return (V) segmentFor(hash).put(key, (int) hash, value, false);
+    }
+
+    /**
+     * @param key   the key
+     * @param value the value
+     * @return the current value of the key or {@code null} if the value was put
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(long key, V value) {
+        Objects.requireNonNull(value);
+        final long hash = hash(key);
+        return (V) segmentFor(hash).put(key, (int) hash, value, true);
+    }
+
+    /**
+     * Returns the value of the key, if there is none the function is called while the segment of the key is locked, so it must be short and must not access this map
+     *
+     * @param key             the key
+     * @param mappingFunction the function creating the value
+     * @return the current or created value, {@code null} if the function returned {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        final long hash = hash(key);
+        final Segment segment = segmentFor(hash);
+        final Object value = segment.get(key, (int) hash);
+        return (V) (value != null ? value : segment.computeIfAbsent(key, (int) hash, mappingFunction));
+    }
+
+    /**
+     * @param key the key
+     * @return the removed value or {@code null} if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        final long hash = hash(key);
+        return (V) segmentFor(hash).remove(key, (int) hash, null);
+    }
+
+    /**
+     * @param key   the key
+     * @param value the expected value
+     * @return {@code true} if the key was mapped to the value and was removed, {@code false} otherwise
+     */
+    public boolean remove(long key, V value) {
+        Objects.requireNonNull(value);
+        final long hash = hash(key);
+        return segmentFor(hash).remove(key, (int) hash, value) != null;
+    }
+
+    /**
+     * @return the amount of entries, not exact while the map is modified concurrently
+     */
+    public int size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return {@code true} if the map has no entries, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        for (Segment segment : segments) {
+            if (segment.size != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        // The high bits pick the segment and the low bits the slot so both spread independently
+        return segments[segmentShift == 64 ? 0 : (int) (hash >>> segmentShift)];
+    }
+
+    private static long hash(long key) {
+        // Finalizer of MurmurHash3, sequential ids such as user ids would otherwise form long probe runs
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static int tableSize(int capacity) {
+        return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * The keys and values are swapped together when the segment grows so optimistic readers never see arrays of different sizes
+     */
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+
+        private Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    private static final class Segment extends StampedLock {
+        private final int initialCapacity;
+        private volatile Table table;
+        private volatile int size;
+        private int threshold;
+
+        private Segment(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+            setTable(new Table(initialCapacity));
+        }
+
+        private Object get(long key, int hash) {
+            final long stamp = tryOptimisticRead();
+            if (stamp != 0L) {
+                final Object value = find(table, key, hash);
+                if (validate(stamp)) {
+                    return value;
+                }
+            }
+
+            final long readStamp = readLock();
+            try {
+                return find(table, key, hash);
+            } finally {
+                unlockRead(readStamp);
+            }
+        }
+
+        private Object put(long key, int hash, Object value, boolean onlyIfAbsent) {
+            final long stamp = writeLock();
+            try {
+                final Table current = table;
+                final int index = indexOf(current, key, hash);
+                final Object previous = current.values[index];
+                if (previous == null) {
+                    insert(current, index, key, value);
+                } else if (!onlyIfAbsent) {
+                    current.values[index] = value;
+                }
+                return previous;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        private Object computeIfAbsent(long key, int hash, LongFunction<?> mappingFunction) {
+            final long stamp = writeLock();
+            try {
+                final Table current = table;
+                final int index = indexOf(current, key, hash);
+                final Object previous = current.values[index];
+                if (previous != null) {
+                    return previous;
+                }
+
+                final Object value = mappingFunction.apply(key);
+                if (value != null) {
+                    insert(current, index, key, value);
+                }
+                return value;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        private Object remove(long key, int hash, Object expected) {
+            final long stamp = writeLock();
+            try {
+                final Table current = table;
+                final int index = indexOf(current, key, hash);
+                final Object previous = current.values[index];
+                if ((previous == null) || ((expected != null) && (previous != expected) && !previous.equals(expected))) {
+                    return null;
+                }
+
+                delete(current, index);
+                size--;
+                return previous;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        private void clear() {
+            final long stamp = writeLock();
+            try {
+                setTable(new Table(initialCapacity));
+                size = 0;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        private void insert(Table current, int index, long key, Object value) {
+            current.keys[index] = key;
+            current.values[index] = value;
+            if (++size > threshold) {
+                resize(current);
+            }
+        }
+
+        private void resize(Table current) {
+            final Table resized = new Table(current.keys.length << 1);
+            for (int i = 0; i < current.keys.length; i++) {
+                final Object value = current.values[i];
+                if (value != null) {
+                    final long key = current.keys[i];
+                    final int index = indexOf(resized, key, (int) hash(key));
+                    resized.keys[index] = key;
+                    resized.values[index] = value;
+                }
+            }
+            setTable(resized);
+        }
+
+        private void setTable(Table table) {
+            this.table = table;
+            this.threshold = (int) (table.keys.length * LOAD_FACTOR);
+        }
+
+        /**
+         * Backward shift deletion, the entries following the removed one are moved closer to their home slot so lookups never need tombstones
+         */
+        private static void delete(Table current, int index) {
+            final long[] keys = current.keys;
+            final Object[] values = current.values;
+            final int mask = keys.length - 1;
+            int gap = index;
+            int next = index;
+            while (true) {
+                next = (next + 1) & mask;
+                final Object value = values[next];
+                if (value == null) {
+                    break;
+                }
+
+                final int home = (int) hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = value;
+                    gap = next;
+                }
+            }
+            values[gap] = null;
+        }
+
+        /**
+         * @return the slot of the key or the empty slot it belongs to
+         */
+        private static int indexOf(Table current, long key, int hash) {
+            final long[] keys = current.keys;
+            final Object[] values = current.values;
+            final int mask = keys.length - 1;
+            int index = hash & mask;
+            while ((values[index] != null) && (keys[index] != key)) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        /**
+         * Safe to call without the lock, the probes are bounded so a table modified meanwhile can't loop forever and the caller validates the result
+         */
+        private static Object find(Table current, long key, int hash) {
+            final long[] keys = current.keys;
+            final Object[] values = current.values;
+            final int mask = keys.length - 1;
+            for (int index = hash & mask, probes = 0; probes <= mask; index = (index + 1) & mask, probes++) {
+                final Object value = values[index];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[index] == key) {
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.util;
+
+import com.github.unafraid.telegrambot.dispatch.UpdateType;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.message.MaybeInaccessibleMessage;
+
+/**
+ * @author UnAfraid
+ */
+public class UpdateUtil {
+    /**
+     * Returns the id of the chat the update belongs to, for updates that aren't bound to a chat (inline queries, payments and so) the id of the user's private chat is returned
+     *
+     * @param update the update
+     * @return the chat id, {@code null} if the update has neither chat nor user
+     */
+    public static Long getChatId(Update update) {
+        return getChatId(update, UpdateType.of(update));
+    }
+
+    /**
+     * Returns the id of the chat the update of already known type belongs to, see {@link #getChatId(Update)}
+     *
+     * @param update the update
+     * @param type   the type of the update
+     * @return the chat id, {@code null} if the update has neither chat nor user
+     */
+    public static Long getChatId(Update update, UpdateType type) {
+        return switch (type) {
+            case MESSAGE, DOCUMENT, COMMAND -> getChatId(update.getMessage());
+            case CALLBACK_QUERY -> {
+                final Long chatId = getChatId(update.getCallbackQuery().getMessage());
+                yield chatId != null ? chatId : getUserId(update.getCallbackQuery().getFrom());
+            }
+            case EDITED_MESSAGE -> getChatId(update.getEditedMessage());
+            case CHANNEL_POST -> getChatId(update.getChannelPost());
+            case EDITED_CHANNEL_POST -> getChatId(update.getEditedChannelPost());
+            case INLINE_QUERY -> getUserId(update.getInlineQuery().getFrom());
+            case CHOSEN_INLINE_QUERY -> getUserId(update.getChosenInlineQuery().getFrom());
+            case SHIPPING_QUERY -> getUserId(update.getShippingQuery().getFrom());
+            case PRE_CHECKOUT_QUERY -> getUserId(update.getPreCheckoutQuery().getFrom());
+            case POLL_ANSWER -> getUserId(update.getPollAnswer().getUser());
+            case MY_CHAT_MEMBER -> getChatId(update.getMyChatMember().getChat());
+            case CHAT_MEMBER -> getChatId(update.getChatMember().getChat());
+            case CHAT_JOIN_REQUEST -> getChatId(update.getChatJoinRequest().getChat());
+            case POLL, UNKNOWN -> null;
+        };
+    }
+
+    private static Long getChatId(MaybeInaccessibleMessage message) {
+        return message != null ? getChatId(message.getChat()) : null;
+    }
+
+    private static Long getChatId(Chat chat) {
+        return chat != null ? chat.getId() : null;
+    }
+
+    private static Long getUserId(User user) {
+        return user != null ? user.getId() : null;
+    }
+}
@@ -2,9 +2,15 @@ package com.github.unafraid.telegrambot;
 
 import com.github.unafraid.telegrambot.bots.AbstractTelegramBot;
 import com.github.unafraid.telegrambot.bots.DefaultTelegramBot;
+import com.github.unafraid.telegrambot.dispatch.UpdateType;
+import com.github.unafraid.telegrambot.handlers.IAccessLevelResolver;
 import com.github.unafraid.telegrambot.handlers.ICommandHandler;
 import com.github.unafraid.telegrambot.handlers.IPollHandler;
 import com.github.unafraid.telegrambot.handlers.IUpdateHandler;
+import com.github.unafraid.telegrambot.handlers.async.IAsyncPollHandler;
+import com.github.unafraid.telegrambot.metrics.HandlerOutcome;
+import com.github.unafraid.telegrambot.metrics.HandlerStats;
+import com.github.unafraid.telegrambot.metrics.InMemoryBotMetrics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -16,8 +22,11 @@ import org.telegram.telegrambots.meta.api.objects.polls.Poll;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+import java.lang.reflect.Proxy;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AbstractTelegramBotTest {
     @Test
@@ -117,4 +126,203 @@ public class AbstractTelegramBotTest {
 
         Assertions.assertTrue(didCall.get());
     }
+
+    @Test
+    public void notifiesNextHandlerOnceAsyncHandlerCompletes() {
+        final DefaultTelegramBot bot = new DefaultTelegramBot(null);
+        final CompletableFuture<Boolean> consumed = new CompletableFuture<>();
+        final AtomicBoolean didCall = new AtomicBoolean();
+        bot.addHandler((IAsyncPollHandler) (b, u, poll) -> consumed);
+        bot.addHandler((IPollHandler) (b, u, poll) -> didCall.compareAndSet(false, true));
+
+        final Message msg = new Message();
+        msg.setFrom(new User(0L, "TestBot", true));
+
+        final Update update = new Update();
+        update.setUpdateId(1);
+        update.setMessage(msg);
+        update.setPoll(new Poll());
+
+        bot.consume(List.of(update));
+        Assertions.assertFalse(didCall.get());
+
+        consumed.complete(false);
+        Assertions.assertTrue(didCall.get());
+    }
+
+    @Test
+    public void getHandlerByCommandOrAlias() {
+        final DefaultTelegramBot bot = new DefaultTelegramBot(null);
+        final ICommandHandler handler = new ICommandHandler() {
+            @Override
+            public String getCommand() {
+                return "/Help";
+            }
+
+            @Override
+            public List<String> getAliases() {
+                return List.of("/h", "/?");
+            }
+
+            @Override
+            public String getUsage() {
+                return "/help";
+            }
+
+            @Override
+            public String getDescription() {
+                return "";
+            }
+
+            @Override
+            public void onCommandMessage(AbstractTelegramBot bot, Update update, Message message, List<String> args) {
+            }
+        };
+        bot.addHandler(handler);
+
+        Assertions.assertSame(handler, bot.getHandler("/help"));
+        Assertions.assertSame(handler, bot.getHandler("/HELP"));
+        Assertions.assertSame(handler, bot.getHandler("/H"));
+        Assertions.assertSame(handler, bot.getHandler("/?"));
+        Assertions.assertNull(bot.getHandler("help"));
+        Assertions.assertNull(bot.getHandler("/start"));
+
+        Assertions.assertTrue(bot.removeHandler(handler));
+        Assertions.assertNull(bot.getHandler("/help"));
+    }
+
+    @Test
+    public void getAvailableHandlersForUserByAccessLevel() {
+        final DefaultTelegramBot bot = new DefaultTelegramBot(null);
+        bot.setAccessLevelValidator((IAccessLevelResolver) user -> user.getId().intValue());
+
+        final IPollHandler guest = createPollHandler(0);
+        final IPollHandler member = createPollHandler(1);
+        final IPollHandler admin = createPollHandler(5);
+        bot.addHandler(admin);
+        bot.addHandler(guest);
+        bot.addHandler(member);
+
+        Assertions.assertEquals(List.of(), bot.getAvailableHandlersForUser(IPollHandler.class, new User(-1L, "Banned", false)));
+        Assertions.assertEquals(List.of(guest), bot.getAvailableHandlersForUser(IPollHandler.class, new User(0L, "Guest", false)));
+        Assertions.assertEquals(List.of(guest, member), bot.getAvailableHandlersForUser(IPollHandler.class, new User(3L, "Member", false)));
+        Assertions.assertEquals(List.of(admin, guest, member), bot.getAvailableHandlersForUser(IPollHandler.class, new User(5L, "Admin", false)));
+        Assertions.assertEquals(List.of(admin, guest, member), bot.getAvailableHandlersForUser(IPollHandler.class, new User(10L, "Owner", false)));
+        Assertions.assertEquals(List.of(), bot.getAvailableHandlersForUser(IUpdateHandler.class, new User(10L, "Owner", false)));
+    }
+
+    @Test
+    public void validatesOnlyNotifiedHandlers() {
+        final DefaultTelegramBot bot = new DefaultTelegramBot(null);
+        final AtomicInteger validations = new AtomicInteger();
+        bot.setAccessLevelValidator((handler, user) -> {
+            validations.incrementAndGet();
+            return true;
+        });
+        for (int i = 0; i < 10; i++) {
+            bot.addHandler(createPollHandler(1));
+        }
+
+        final Message msg = new Message();
+        msg.setFrom(new User(0L, "TestBot", true));
+
+        final Update update = new Update();
+        update.setUpdateId(1);
+        update.setMessage(msg);
+        update.setPoll(new Poll());
+
+        bot.consume(List.of(update));
+
+        Assertions.assertEquals(1, validations.get());
+    }
+
+    @Test
+    public void recordsHandlerMetrics() {
+        final DefaultTelegramBot bot = new DefaultTelegramBot(null);
+        final InMemoryBotMetrics metrics = new InMemoryBotMetrics();
+        bot.setMetrics(metrics);
+
+        final IUpdateHandler updateHandler = (b, u) -> false;
+        final IPollHandler pollHandler = createPollHandler(0);
+        bot.addHandler(updateHandler);
+        bot.addHandler(pollHandler);
+
+        final Message msg = new Message();
+        msg.setFrom(new User(0L, "TestBot", true));
+
+        final Update update = new Update();
+        update.setUpdateId(1);
+        update.setMessage(msg);
+        update.setPoll(new Poll());
+
+        bot.consume(List.of(update, update));
+
+        final List<HandlerStats> stats = metrics.getHandlerStats();
+        Assertions.assertEquals(2, stats.size());
+        for (HandlerStats handlerStats : stats) {
+            Assertions.assertEquals(UpdateType.POLL, handlerStats.getUpdateType());
+            Assertions.assertEquals(2, handlerStats.getWallTime().getCount());
+            final boolean isPollHandler = handlerStats.getHandlerClass() == pollHandler.getClass();
+            Assertions.assertEquals(isPollHandler ? 2 : 0, handlerStats.getCount(HandlerOutcome.CONSUMED));
+            Assertions.assertEquals(isPollHandler ? 0 : 2, handlerStats.getCount(HandlerOutcome.PASSED));
+        }
+        Assertions.assertEquals(2, metrics.getUpdateTime(UpdateType.POLL).getCount());
+    }
+
+    @Test
+    public void warmsUpUsernameOnFirstUpdates() {
+        final AtomicInteger calls = new AtomicInteger();
+        final CompletableFuture<User> me = new CompletableFuture<>();
+        final TelegramClient telegramClient = (TelegramClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TelegramClient.class}, (proxy, method, args) -> {
+            if (method.getName().equals("executeAsync") && (args[0] instanceof GetMe)) {
+                return calls.incrementAndGet() == 1 ? CompletableFuture.failedFuture(new TelegramApiException("Unavailable")) : me;
+            }
+            return null;
+        });
+        final DefaultTelegramBot bot = new DefaultTelegramBot(telegramClient);
+
+        // The failed warm-up is retried with the next updates, the pending one is shared
+        bot.consume(List.of(new Update()));
+        Assertions.assertEquals(1, calls.get());
+        bot.consume(List.of(new Update()));
+        bot.consume(List.of(new Update()));
+        Assertions.assertEquals(2, calls.get());
+        Assertions.assertFalse(bot.warmUpBotUsername().isDone());
+
+        final User user = new User(1L, "Bot", true);
+        user.setUserName("TestBot");
+        me.complete(user);
+        Assertions.assertEquals("TestBot", bot.warmUpBotUsername().join());
+        bot.consume(List.of(new Update()));
+        Assertions.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void propagatesExceptionsThrownByClient() {
+        final TelegramApiException exception = new TelegramApiException("Invalid method");
+        final TelegramClient telegramClient = (TelegramClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TelegramClient.class}, (proxy, method, args) -> {
+            throw exception;
+        });
+        final DefaultTelegramBot bot = new DefaultTelegramBot(telegramClient);
+
+        Assertions.assertSame(exception, Assertions.assertThrows(TelegramApiException.class, () -> bot.executeAsync(new GetMe())));
+        bot.setMetrics(new InMemoryBotMetrics());
+        Assertions.assertSame(exception, Assertions.assertThrows(TelegramApiException.class, () -> bot.executeAsync(new GetMe())));
+        bot.setMetrics(null);
+        Assertions.assertSame(exception, Assertions.assertThrows(TelegramApiException.class, () -> bot.executeAsync(new GetMe())));
+    }
+
+    private static IPollHandler createPollHandler(int requiredAccessLevel) {
+        return new IPollHandler() {
+            @Override
+            public boolean onPoll(AbstractTelegramBot bot, Update update, Poll poll) {
+                return true;
+            }
+
+            @Override
+            public int getRequiredAccessLevel() {
+                return requiredAccessLevel;
+            }
+        };
+    }
 }
@@ -0,0 +1,205 @@
+package com.github.unafraid.telegrambot;
+
+import com.github.unafraid.telegrambot.handlers.CachingAccessLevelValidator;
+import com.github.unafraid.telegrambot.handlers.IAccessLevelValidator;
+import com.github.unafraid.telegrambot.handlers.ITelegramHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingAccessLevelValidatorTest {
+    private static final ITelegramHandler GUEST = new ITelegramHandler() {
+    };
+    private static final ITelegramHandler ADMIN = new ITelegramHandler() {
+        @Override
+        public int getRequiredAccessLevel() {
+            return 5;
+        }
+    };
+
+    @Test
+    public void cachesDecisionsUntilExpired() throws InterruptedException {
+        final CountingValidator delegate = new CountingValidator();
+        final CachingAccessLevelValidator validator = new CachingAccessLevelValidator(delegate, Duration.ofMillis(100), 16);
+        final User user = new User(3L, "Member", false);
+
+        Assertions.assertTrue(validator.validate(GUEST, user));
+        Assertions.assertTrue(validator.validate(GUEST, user));
+        Assertions.assertFalse(validator.validate(ADMIN, user));
+        Assertions.assertFalse(validator.validate(ADMIN, user));
+        Assertions.assertEquals(2, delegate.calls.get());
+
+        Thread.sleep(150);
+        Assertions.assertTrue(validator.validate(GUEST, user));
+        Assertions.assertFalse(validator.validate(ADMIN, user));
+        Assertions.assertEquals(4, delegate.calls.get());
+    }
+
+    @Test
+    public void asksAgainForRefusedAccessWithoutNegativeTtl() {
+        final CountingValidator delegate = new CountingValidator();
+        final CachingAccessLevelValidator validator = new CachingAccessLevelValidator(delegate, Duration.ofMinutes(1), Duration.ZERO, 16);
+        final User user = new User(3L, "Member", false);
+
+        Assertions.assertFalse(validator.validate(ADMIN, user));
+        Assertions.assertFalse(validator.validate(ADMIN, user));
+        Assertions.assertEquals(2, delegate.calls.get());
+
+        Assertions.assertTrue(validator.validate(GUEST, user));
+        Assertions.assertTrue(validator.validate(GUEST, user));
+        Assertions.assertEquals(3, delegate.calls.get());
+        Assertions.assertEquals(1, validator.size());
+    }
+
+    @Test
+    public void dropsUnusedDecisionsWhenFull() {
+        final CountingValidator delegate = new CountingValidator();
+        final CachingAccessLevelValidator validator = new CachingAccessLevelValidator(delegate, Duration.ofMinutes(1), 3);
+        final User first = new User(1L, "First", false);
+        final User second = new User(2L, "Second", false);
+        final User third = new User(3L, "Third", false);
+        final User fourth = new User(4L, "Fourth", false);
+
+        validator.validate(GUEST, first);
+        validator.validate(GUEST, second);
+        validator.validate(GUEST, third);
+        validator.validate(GUEST, first);
+        Assertions.assertEquals(3, delegate.calls.get());
+
+        // The second user is the first one not used since it was cached
+        validator.validate(GUEST, fourth);
+        Assertions.assertEquals(3, validator.size());
+        Assertions.assertEquals(4, delegate.calls.get());
+
+        validator.validate(GUEST, first);
+        validator.validate(GUEST, third);
+        validator.validate(GUEST, fourth);
+        Assertions.assertEquals(4, delegate.calls.get());
+
+        validator.validate(GUEST, second);
+        Assertions.assertEquals(5, delegate.calls.get());
+        Assertions.assertEquals(3, validator.size());
+    }
+
+    @Test
+    public void invalidatesDecisionsOfUser() {
+        final CountingValidator delegate = new CountingValidator();
+        final CachingAccessLevelValidator validator = new CachingAccessLevelValidator(delegate, Duration.ofMinutes(1), 16);
+        final User user = new User(3L, "Member", false);
+        final User other = new User(4L, "Other", false);
+
+        validator.validate(GUEST, user);
+        validator.validate(ADMIN, user);
+        validator.validate(GUEST, other);
+        Assertions.assertEquals(3, validator.size());
+
+        validator.invalidate(3L);
+        Assertions.assertEquals(1, validator.size());
+        validator.validate(GUEST, user);
+        validator.validate(ADMIN, user);
+        validator.validate(GUEST, other);
+        Assertions.assertEquals(5, delegate.calls.get());
+
+        validator.invalidate(3L, 5);
+        validator.validate(GUEST, user);
+        validator.validate(ADMIN, user);
+        Assertions.assertEquals(6, delegate.calls.get());
+    }
+
+    @Test
+    public void asksDelegateOnceForConcurrentLookups() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final CachingAccessLevelValidator validator = new CachingAccessLevelValidator((handler, user) -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }, Duration.ofMinutes(1), 16);
+        final User user = new User(3L, "Member", false);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            results.add(executor.submit(() -> validator.validate(GUEST, user)));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> validator.validate(GUEST, user)));
+            }
+            Thread.sleep(50);
+            release.countDown();
+            for (Future<Boolean> result : results) {
+                Assertions.assertTrue(result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void doesNotCacheFailures() {
+        final AtomicInteger calls = new AtomicInteger();
+        final CachingAccessLevelValidator validator = new CachingAccessLevelValidator((handler, user) -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("Backend unavailable");
+            }
+            return true;
+        }, Duration.ofMinutes(1), 16);
+        final User user = new User(3L, "Member", false);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> validator.validate(GUEST, user));
+        Assertions.assertEquals(0, validator.size());
+        Assertions.assertTrue(validator.validate(GUEST, user));
+        Assertions.assertTrue(validator.validate(GUEST, user));
+        Assertions.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void staysWithinMaxSizeUnderContention() throws Exception {
+        final CachingAccessLevelValidator validator = new CachingAccessLevelValidator(new CountingValidator(), Duration.ofMinutes(1), 64);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                final int offset = thread * 10_000;
+                results.add(executor.submit(() -> {
+                    for (long id = 0; id < 10_000; id++) {
+                        validator.validate(GUEST, new User(offset + (id % 100), "User", false));
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertTrue(validator.size() <= 64);
+    }
+
+    private static class CountingValidator implements IAccessLevelValidator {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public boolean validate(ITelegramHandler handler, User user) {
+            calls.incrementAndGet();
+            return handler.getRequiredAccessLevel() <= user.getId();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.unafraid.telegrambot;
+
+import com.github.unafraid.telegrambot.util.CommandTokenizer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class CommandTokenizerTest {
+    @Test
+    public void parseCommand() {
+        Assertions.assertEquals("/command", CommandTokenizer.parseCommand("/command test 1 2 3"));
+        Assertions.assertEquals("/command", CommandTokenizer.parseCommand(" \t/command"));
+        Assertions.assertEquals("\"quoted command\"", CommandTokenizer.parseCommand("\"quoted command\" arg"));
+        Assertions.assertEquals("\"unterminated", CommandTokenizer.parseCommand("\"unterminated quote"));
+        Assertions.assertNull(CommandTokenizer.parseCommand(" \r\n\t"));
+        Assertions.assertNull(CommandTokenizer.parseCommand(""));
+    }
+
+    @Test
+    public void parseArguments() {
+        Assertions.assertEquals(List.of("test", "1", "2", "3"), CommandTokenizer.parseArguments("/command test 1 2 3"));
+        Assertions.assertEquals(List.of("one arg", "two"), CommandTokenizer.parseArguments("/command \"one arg\" two"));
+        Assertions.assertEquals(List.of("", "a", "b"), CommandTokenizer.parseArguments("/command \"\" \"a\"b"));
+        Assertions.assertEquals(List.of("multi\nline"), CommandTokenizer.parseArguments("/command \"multi\nline\""));
+        Assertions.assertEquals(List.of("a\"b", "\"c"), CommandTokenizer.parseArguments("/command a\"b \"c"));
+        Assertions.assertEquals(List.of(), CommandTokenizer.parseArguments("/command"));
+        Assertions.assertEquals(List.of(), CommandTokenizer.parseArguments("   "));
+    }
+}
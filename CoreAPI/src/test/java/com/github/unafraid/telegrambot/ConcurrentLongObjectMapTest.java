@@ -0,0 +1,81 @@
+package com.github.unafraid.telegrambot;
+
+import com.github.unafraid.telegrambot.util.ConcurrentLongObjectMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ConcurrentLongObjectMapTest {
+    @Test
+    public void behavesLikeHashMap() {
+        final ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>(2, 0);
+        final Map<Long, String> expected = new HashMap<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Small key range so the same keys are put and removed over and over
+            final long key = random.nextInt(2_000) - 1_000;
+            final String value = Integer.toString(i);
+            switch (random.nextInt(5)) {
+                case 0 -> Assertions.assertEquals(expected.put(key, value), map.put(key, value));
+                case 1 -> Assertions.assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                case 2 -> Assertions.assertEquals(expected.remove(key), map.remove(key));
+                case 3 -> Assertions.assertEquals(expected.computeIfAbsent(key, id -> Long.toString(id)), map.computeIfAbsent(key, Long::toString));
+                default -> Assertions.assertEquals(expected.get(key), map.get(key));
+            }
+        }
+
+        Assertions.assertEquals(expected.size(), map.size());
+        for (long key = -1_000; key < 1_000; key++) {
+            Assertions.assertEquals(expected.get(key), map.get(key));
+        }
+
+        map.clear();
+        Assertions.assertTrue(map.isEmpty());
+        Assertions.assertNull(map.get(0));
+    }
+
+    @Test
+    public void removesOnlyExpectedValue() {
+        final ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        map.put(Long.MIN_VALUE, "first");
+        Assertions.assertFalse(map.remove(Long.MIN_VALUE, "second"));
+        Assertions.assertTrue(map.remove(Long.MIN_VALUE, "first"));
+        Assertions.assertFalse(map.containsKey(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void keepsAllConcurrentlyPutEntries() throws Exception {
+        final ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            final long offset = thread * 100_000L;
+            futures.add(executor.submit(() -> {
+                for (long key = offset; key < (offset + 100_000); key++) {
+                    map.put(key, key);
+                    Assertions.assertEquals(Long.valueOf(key), map.get(key));
+                    if ((key % 2) == 0) {
+                        map.remove(key);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(200_000, map.size());
+        for (long key = 0; key < 400_000; key++) {
+            Assertions.assertEquals((key % 2) == 0 ? null : key, map.get(key));
+        }
+    }
+}
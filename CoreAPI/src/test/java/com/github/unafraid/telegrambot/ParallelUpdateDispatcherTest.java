@@ -0,0 +1,404 @@
+package com.github.unafraid.telegrambot;
+
+import com.github.unafraid.telegrambot.dispatch.DispatchExecutors;
+import com.github.unafraid.telegrambot.dispatch.IUpdateProcessor;
+import com.github.unafraid.telegrambot.dispatch.OverloadPolicy;
+import com.github.unafraid.telegrambot.dispatch.ParallelUpdateDispatcher;
+import com.github.unafraid.telegrambot.dispatch.ParallelUpdateDispatcherBuilder;
+import com.github.unafraid.telegrambot.dispatch.UpdateType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelUpdateDispatcherTest {
+    @Test
+    public void keepsOrderPerChat() {
+        final ParallelUpdateDispatcher dispatcher = new ParallelUpdateDispatcherBuilder()
+                .workers(4)
+                .maxQueuedUpdatesPerChat(5)
+                .maxUpdatesPerTurn(3)
+                .build();
+
+        final List<Update> updates = createUpdates(10_000, 37);
+        final Map<Long, List<Integer>> processed = new ConcurrentHashMap<>();
+        dispatcher.dispatch(updates, (update, type) -> {
+            record(processed, update);
+            return CompletableFuture.completedFuture(null);
+        });
+        dispatcher.close();
+
+        assertOrdered(processed, 37, updates.size());
+        Assertions.assertEquals(0, dispatcher.getActiveChats());
+    }
+
+    @Test
+    public void keepsOrderPerChatWhenProcessingCompletesLater() throws InterruptedException {
+        final ParallelUpdateDispatcher dispatcher = new ParallelUpdateDispatcherBuilder()
+                .workers(4)
+                .maxQueuedUpdatesPerChat(5)
+                .build();
+        final ExecutorService completer = Executors.newFixedThreadPool(2);
+
+        final List<Update> updates = createUpdates(2_000, 11);
+        final Map<Long, List<Integer>> processed = new ConcurrentHashMap<>();
+        final CountDownLatch latch = new CountDownLatch(updates.size());
+        dispatcher.dispatch(updates, (update, type) -> {
+            if ((update.getUpdateId() % 3) != 0) {
+                record(processed, update);
+                latch.countDown();
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return CompletableFuture.runAsync(() -> {
+                record(processed, update);
+                latch.countDown();
+            }, completer);
+        });
+
+        Assertions.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        dispatcher.close();
+        completer.shutdown();
+
+        assertOrdered(processed, 11, updates.size());
+    }
+
+    @Test
+    public void dropsOldestUpdatesOfOverloadedChat() throws InterruptedException {
+        final ParallelUpdateDispatcher dispatcher = new ParallelUpdateDispatcherBuilder()
+                .workers(1)
+                .maxQueuedUpdatesPerChat(2)
+                .overloadPolicy(OverloadPolicy.DROP_OLDEST)
+                .build();
+
+        final List<Update> updates = createUpdates(5, 1);
+        final Update callbackUpdate = createCallbackUpdate(5, updates.get(0).getMessage());
+
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IUpdateProcessor processor = createBlockingProcessor(processed, started, release);
+
+        // The first update occupies the chat's worker while the rest pile up
+        dispatcher.dispatch(updates.subList(0, 1), processor);
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(updates.subList(1, 5), processor);
+        dispatcher.dispatch(List.of(callbackUpdate), processor);
+        release.countDown();
+        dispatcher.close();
+
+        Assertions.assertEquals(2, dispatcher.getDroppedUpdates());
+        Assertions.assertEquals(List.of(0, 5, 3, 4), processed);
+    }
+
+    @Test
+    public void rejectsUpdatesOfOverloadedChat() throws InterruptedException {
+        final ParallelUpdateDispatcher dispatcher = new ParallelUpdateDispatcherBuilder()
+                .workers(1)
+                .maxQueuedUpdatesPerChat(2)
+                .overloadPolicy(OverloadPolicy.REJECT)
+                .build();
+
+        final List<Update> updates = createUpdates(5, 1);
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IUpdateProcessor processor = createBlockingProcessor(processed, started, release);
+
+        dispatcher.dispatch(updates.subList(0, 1), processor);
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(updates.subList(1, 5), processor);
+        release.countDown();
+        dispatcher.close();
+
+        Assertions.assertEquals(2, dispatcher.getDroppedUpdates());
+        Assertions.assertEquals(List.of(0, 1, 2), processed);
+    }
+
+    @Test
+    public void shedsLowPriorityUpdatesOfOtherChats() throws InterruptedException {
+        final ParallelUpdateDispatcher dispatcher = new ParallelUpdateDispatcherBuilder()
+                .workers(1)
+                .maxQueuedUpdates(2)
+                .overloadPolicy(OverloadPolicy.DROP_LOW_PRIORITY)
+                .build();
+
+        final List<Update> updates = createUpdates(5, 5);
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IUpdateProcessor processor = createBlockingProcessor(processed, started, release);
+
+        // The edited messages of two other chats take the whole global limit, the messages of the next chats take their place
+        dispatcher.dispatch(updates.subList(0, 1), processor);
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(List.of(createEditedUpdate(updates.get(1)), createEditedUpdate(updates.get(2))), processor);
+        dispatcher.dispatch(updates.subList(3, 5), processor);
+        release.countDown();
+        dispatcher.close();
+
+        Assertions.assertEquals(2, dispatcher.getDroppedUpdates());
+        Assertions.assertEquals(Integer.valueOf(0), processed.get(0));
+        Assertions.assertEquals(Set.of(0, 3, 4), Set.copyOf(processed));
+    }
+
+    @Test
+    public void dropsOldestUpdatesOfOtherChats() throws InterruptedException {
+        final ParallelUpdateDispatcher dispatcher = new ParallelUpdateDispatcherBuilder()
+                .workers(1)
+                .maxQueuedUpdates(2)
+                .overloadPolicy(OverloadPolicy.DROP_OLDEST)
+                .build();
+
+        final List<Update> updates = createUpdates(4, 4);
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IUpdateProcessor processor = createBlockingProcessor(processed, started, release);
+
+        dispatcher.dispatch(updates.subList(0, 1), processor);
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(updates.subList(1, 4), processor);
+        release.countDown();
+        dispatcher.close();
+
+        Assertions.assertEquals(1, dispatcher.getDroppedUpdates());
+        Assertions.assertEquals(3, processed.size());
+        Assertions.assertTrue(processed.contains(3), "The received update should take the place of a queued one");
+    }
+
+    @Test
+    public void dropsLowPriorityUpdatesOfOtherLanes() throws InterruptedException {
+        final ParallelUpdateDispatcher dispatcher = new ParallelUpdateDispatcherBuilder()
+                .workers(1)
+                .maxQueuedUpdatesPerChat(2)
+                .overloadPolicy(OverloadPolicy.DROP_LOW_PRIORITY)
+                .build();
+
+        final List<Update> updates = createUpdates(4, 1);
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IUpdateProcessor processor = createBlockingProcessor(processed, started, release);
+
+        // The edited messages fill the chat's queue in the bulk lane, the message in the normal lane takes the place of the older one
+        dispatcher.dispatch(updates.subList(0, 1), processor);
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(List.of(createEditedUpdate(updates.get(1)), createEditedUpdate(updates.get(2))), processor);
+        dispatcher.dispatch(updates.subList(3, 4), processor);
+        release.countDown();
+        dispatcher.close();
+
+        Assertions.assertEquals(1, dispatcher.getDroppedUpdates());
+        Assertions.assertEquals(List.of(0, 3, 2), processed);
+    }
+
+    @Test
+    public void processesLanesOfChatOneAtATime() throws InterruptedException {
+        final ParallelUpdateDispatcher dispatcher = new ParallelUpdateDispatcherBuilder()
+                .workers(4)
+                .build();
+
+        final List<Update> updates = createUpdates(4, 1);
+        final Update callbackUpdate = createCallbackUpdate(4, updates.get(0).getMessage());
+
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IUpdateProcessor blocking = createBlockingProcessor(processed, started, release);
+        final IUpdateProcessor processor = (update, type) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                return blocking.process(update, type);
+            } finally {
+                running.decrementAndGet();
+            }
+        };
+
+        // The callback query overtakes the waiting messages of its chat but never runs next to them, although there are idle workers
+        dispatcher.dispatch(updates.subList(0, 1), processor);
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(updates.subList(1, 4), processor);
+        dispatcher.dispatch(List.of(callbackUpdate), processor);
+        Thread.sleep(20);
+        release.countDown();
+        dispatcher.close();
+
+        Assertions.assertEquals(1, maxRunning.get());
+        Assertions.assertEquals(List.of(0, 4, 1, 2, 3), processed);
+    }
+
+    @Test
+    public void processesInteractiveUpdatesFirst() throws InterruptedException {
+        final ParallelUpdateDispatcher dispatcher = new ParallelUpdateDispatcherBuilder()
+                .workers(1)
+                .build();
+
+        final List<Update> updates = createUpdates(5, 5);
+        final Update callbackUpdate = createCallbackUpdate(5, updates.get(0).getMessage());
+
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IUpdateProcessor processor = createBlockingProcessor(processed, started, release);
+
+        // The first update occupies the only worker while the other chats and the callback query wait
+        dispatcher.dispatch(updates.subList(0, 1), processor);
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(updates.subList(1, 5), processor);
+        dispatcher.dispatch(List.of(callbackUpdate), processor);
+        release.countDown();
+        dispatcher.close();
+
+        Assertions.assertEquals(List.of(0, 5, 1, 2, 3, 4), processed);
+    }
+
+    @Test
+    public void processesInteractiveUpdatesOfChatFirstOnVirtualThreads() throws InterruptedException {
+        final ParallelUpdateDispatcher dispatcher = new ParallelUpdateDispatcherBuilder()
+                .virtualThreads()
+                .build();
+
+        final List<Update> updates = createUpdates(4, 1);
+        final Update callbackUpdate = createCallbackUpdate(4, updates.get(0).getMessage());
+        final Update otherChatUpdate = createUpdates(2, 2).get(1);
+        otherChatUpdate.setUpdateId(5);
+
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch otherChatProcessed = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IUpdateProcessor blockingProcessor = createBlockingProcessor(processed, started, release);
+        final IUpdateProcessor processor = (update, type) -> {
+            if (update.getUpdateId() == 5) {
+                otherChatProcessed.countDown();
+                return CompletableFuture.completedFuture(null);
+            }
+            return blockingProcessor.process(update, type);
+        };
+
+        // Every chat runs right away so the lanes order the updates within the chat only
+        dispatcher.dispatch(updates.subList(0, 1), processor);
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(updates.subList(1, 4), processor);
+        dispatcher.dispatch(List.of(callbackUpdate), processor);
+        dispatcher.dispatch(List.of(otherChatUpdate), processor);
+        if (DispatchExecutors.isVirtualThreadsSupported()) {
+            Assertions.assertTrue(otherChatProcessed.await(10, TimeUnit.SECONDS));
+        }
+        release.countDown();
+        dispatcher.close();
+
+        Assertions.assertEquals(List.of(0, 4, 1, 2, 3), processed);
+        Assertions.assertEquals(0, otherChatProcessed.getCount());
+    }
+
+    @Test
+    public void discardsExpiredUpdates() throws InterruptedException {
+        final List<Integer> expired = Collections.synchronizedList(new ArrayList<>());
+        final ParallelUpdateDispatcher dispatcher = new ParallelUpdateDispatcherBuilder()
+                .workers(1)
+                .deadline(UpdateType.MESSAGE, Duration.ofMillis(1))
+                .expiredUpdateHandler((update, type) -> expired.add(update.getUpdateId()))
+                .build();
+
+        final List<Update> updates = createUpdates(3, 1);
+        final Update callbackUpdate = createCallbackUpdate(3, updates.get(0).getMessage());
+
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IUpdateProcessor processor = createBlockingProcessor(processed, started, release);
+
+        // The messages wait past their deadline while the callback query occupies the only worker
+        dispatcher.dispatch(List.of(callbackUpdate), processor);
+        Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(updates, processor);
+        Thread.sleep(20);
+        release.countDown();
+        dispatcher.close();
+
+        Assertions.assertEquals(List.of(3), processed);
+        Assertions.assertEquals(List.of(0, 1, 2), expired);
+        Assertions.assertEquals(3, dispatcher.getExpiredUpdates());
+    }
+
+    private static Update createEditedUpdate(Update update) {
+        final Update edited = new Update();
+        edited.setUpdateId(update.getUpdateId());
+        edited.setEditedMessage(update.getMessage());
+        return edited;
+    }
+
+    private static Update createCallbackUpdate(int updateId, Message message) {
+        final CallbackQuery callbackQuery = new CallbackQuery();
+        callbackQuery.setMessage(message);
+        final Update update = new Update();
+        update.setUpdateId(updateId);
+        update.setCallbackQuery(callbackQuery);
+        return update;
+    }
+
+    private static IUpdateProcessor createBlockingProcessor(List<Integer> processed, CountDownLatch started, CountDownLatch release) {
+        return (update, type) -> {
+            processed.add(update.getUpdateId());
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return CompletableFuture.completedFuture(null);
+        };
+    }
+
+    private static List<Update> createUpdates(int count, int chats) {
+        final List<Update> updates = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final Chat chat = new Chat((long) (i % chats) + 1, "private");
+
+            final Message message = new Message();
+            message.setChat(chat);
+
+            final Update update = new Update();
+            update.setUpdateId(i);
+            update.setMessage(message);
+            updates.add(update);
+        }
+        return updates;
+    }
+
+    private static void record(Map<Long, List<Integer>> processed, Update update) {
+        processed.computeIfAbsent(update.getMessage().getChat().getId(), id -> Collections.synchronizedList(new ArrayList<>())).add(update.getUpdateId());
+    }
+
+    private static void assertOrdered(Map<Long, List<Integer>> processed, int chats, int updates) {
+        Assertions.assertEquals(chats, processed.size());
+        int total = 0;
+        for (List<Integer> updateIds : processed.values()) {
+            total += updateIds.size();
+            for (int i = 1; i < updateIds.size(); i++) {
+                Assertions.assertTrue(updateIds.get(i - 1) < updateIds.get(i), "Updates of the same chat were processed out of order");
+            }
+        }
+        Assertions.assertEquals(updates, total);
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.unafraid.telegrambot;
+
+import com.github.unafraid.telegrambot.client.RateLimitedTelegramClient;
+import com.github.unafraid.telegrambot.client.RateLimitedTelegramClientBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.send.SendChatAction;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimitedTelegramClientTest {
+    @Test
+    public void limitsCallsPerChat() throws TelegramApiException {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        try (RateLimitedTelegramClient client = new RateLimitedTelegramClientBuilder(createTelegramClient(calls))
+                .privateChatLimit(1, Duration.ofMillis(200))
+                .build()) {
+            final long start = System.nanoTime();
+            client.execute(createMessage("1"));
+            client.execute(createMessage("1"));
+            Assertions.assertTrue(elapsedMillis(start) >= 150, "Second message to the same chat should wait for the chat's limit");
+
+            // Other chats and the methods that don't send messages aren't held up by the chat's limit
+            final long other = System.nanoTime();
+            client.execute(createMessage("2"));
+            client.execute(DeleteMessage.builder().chatId("1").messageId(1).build());
+            client.execute(SendChatAction.builder().chatId("1").action("typing").build());
+            Assertions.assertTrue(elapsedMillis(other) < 150, "Calls not limited by the chat's bucket should go right away");
+            Assertions.assertEquals(5, calls.size());
+        }
+    }
+
+    @Test
+    public void limitsCallsAcrossChats() throws Exception {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        try (RateLimitedTelegramClient client = new RateLimitedTelegramClientBuilder(createTelegramClient(calls))
+                .globalLimit(2, Duration.ofMillis(400))
+                .build()) {
+            final long start = System.nanoTime();
+            final List<CompletableFuture<?>> results = new ArrayList<>();
+            for (int chat = 1; chat <= 4; chat++) {
+                results.add(client.executeAsync(createMessage(Integer.toString(chat))));
+            }
+
+            Assertions.assertEquals(2, calls.size(), "Only the calls within the global limit should go right away");
+            Assertions.assertEquals(2, client.getQueuedCalls());
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+            Assertions.assertTrue(elapsedMillis(start) >= 300, "Queued calls should wait for the global limit");
+            Assertions.assertEquals(List.of("1", "2", "3", "4"), calls);
+            Assertions.assertEquals(0, client.getQueuedCalls());
+        }
+    }
+
+    @Test
+    public void limitsCallsWithoutChatGlobally() throws Exception {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        try (RateLimitedTelegramClient client = new RateLimitedTelegramClientBuilder(createTelegramClient(calls))
+                .globalLimit(2, Duration.ofMillis(400))
+                .privateChatLimit(1, Duration.ofSeconds(10))
+                .build()) {
+            final long start = System.nanoTime();
+            final List<CompletableFuture<?>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                // Edits of inline messages have no chat id, only the global limit applies to them
+                results.add(client.executeAsync(EditMessageText.builder().inlineMessageId(Integer.toString(i)).text("Hello").build()));
+            }
+
+            Assertions.assertEquals(2, calls.size(), "Only the calls within the global limit should go right away");
+            Assertions.assertEquals(1, client.getQueuedCalls());
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+            Assertions.assertTrue(elapsedMillis(start) >= 150, "Queued call should wait for the global limit");
+            Assertions.assertEquals(3, calls.size());
+        }
+    }
+
+    @Test
+    public void releasesChatsInTurns() throws Exception {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        try (RateLimitedTelegramClient client = new RateLimitedTelegramClientBuilder(createTelegramClient(calls))
+                .globalLimit(1, Duration.ofMillis(50))
+                .privateChatLimit(100, Duration.ofSeconds(1))
+                .build()) {
+            final List<CompletableFuture<?>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(client.executeAsync(createMessage("1")));
+            }
+            results.add(client.executeAsync(createMessage("2")));
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+            // The busy chat got the first call, the other chat is released right after its next one instead of after all of them
+            Assertions.assertEquals(List.of("1", "1", "2", "1", "1"), calls);
+        }
+    }
+
+    @Test
+    public void releasesQueuedCallsOnTime() throws Exception {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        try (RateLimitedTelegramClient client = new RateLimitedTelegramClientBuilder(createTelegramClient(calls))
+                .privateChatLimit(1, Duration.ofMillis(100))
+                .build()) {
+            final long start = System.nanoTime();
+            final List<CompletableFuture<?>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                results.add(client.executeAsync(createMessage("1")));
+            }
+            results.get(1).get(5, TimeUnit.SECONDS);
+            final long second = elapsedMillis(start);
+            results.get(2).get(5, TimeUnit.SECONDS);
+            final long third = elapsedMillis(start);
+
+            Assertions.assertTrue((second >= 80) && (second < 1_000), "Second call released after " + second + " ms");
+            Assertions.assertTrue((third >= 180) && (third < 1_000), "Third call released after " + third + " ms");
+        }
+    }
+
+    private static SendMessage createMessage(String chatId) {
+        return SendMessage.builder().chatId(chatId).text("Hello").build();
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static TelegramClient createTelegramClient(List<String> calls) {
+        return (TelegramClient) Proxy.newProxyInstance(RateLimitedTelegramClientTest.class.getClassLoader(), new Class<?>[]{TelegramClient.class}, (proxy, method, args) -> {
+            if (args[0] instanceof SendMessage message) {
+                calls.add(message.getChatId());
+            } else {
+                calls.add(args[0].getClass().getSimpleName());
+            }
+            return method.getReturnType() == CompletableFuture.class ? CompletableFuture.completedFuture(Boolean.TRUE) : Boolean.TRUE;
+        });
+    }
+}
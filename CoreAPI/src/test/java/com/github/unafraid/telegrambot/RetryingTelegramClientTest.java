@@ -0,0 +1,176 @@
+package com.github.unafraid.telegrambot;
+
+import com.github.unafraid.telegrambot.client.RetryingTelegramClient;
+import com.github.unafraid.telegrambot.client.RetryingTelegramClientBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.GetMe;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryingTelegramClientTest {
+    private static final String RESULT = "result";
+
+    @Test
+    public void waitsForRetryAfter() throws TelegramApiException {
+        final AtomicInteger calls = new AtomicInteger();
+        final RetryingTelegramClient client = new RetryingTelegramClientBuilder(createTelegramClient(calls, createRequestException(429, 1), RESULT)).build();
+
+        final long start = System.nanoTime();
+        Assertions.assertEquals(RESULT, client.execute(createMessage()));
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 900, "The call should be retried once retry_after passes");
+        Assertions.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void failsOnRetryAfterLongerThanMaximum() {
+        final AtomicInteger calls = new AtomicInteger();
+        final TelegramApiRequestException error = createRequestException(429, 120);
+        final RetryingTelegramClient client = new RetryingTelegramClientBuilder(createTelegramClient(calls, error, RESULT)).build();
+
+        Assertions.assertSame(error, Assertions.assertThrows(TelegramApiRequestException.class, () -> client.execute(createMessage())));
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() {
+        final AtomicInteger calls = new AtomicInteger();
+        final TelegramApiRequestException error = createRequestException(400, null);
+        final RetryingTelegramClient client = new RetryingTelegramClientBuilder(createTelegramClient(calls, error, RESULT)).build();
+
+        Assertions.assertSame(error, Assertions.assertThrows(TelegramApiRequestException.class, () -> client.execute(createMessage())));
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void stopsRetryingOnceBudgetIsSpent() {
+        final AtomicInteger calls = new AtomicInteger();
+        final TelegramApiRequestException error = createRequestException(500, null);
+        final RetryingTelegramClient client = new RetryingTelegramClientBuilder(createTelegramClient(calls, error, error, error, error))
+                .backoff(Duration.ofMillis(1), Duration.ofMillis(1))
+                .retryBudget(0, 1)
+                .build();
+
+        // The only retry of the budget is spent by the first call
+        Assertions.assertThrows(TelegramApiRequestException.class, () -> client.execute(createMessage()));
+        Assertions.assertEquals(2, calls.get());
+        Assertions.assertEquals(0, client.getRetryBudget());
+        Assertions.assertThrows(TelegramApiRequestException.class, () -> client.execute(createMessage()));
+        Assertions.assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void retriesServerErrorsAsynchronously() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final TelegramApiRequestException error = createRequestException(502, null);
+        final RetryingTelegramClient client = new RetryingTelegramClientBuilder(createTelegramClient(calls, error, error, RESULT))
+                .backoff(Duration.ofMillis(1), Duration.ofMillis(10))
+                .build();
+
+        Assertions.assertEquals(RESULT, client.executeAsync(createMessage()).get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void failsAsynchronouslyOnClientErrors() {
+        final AtomicInteger calls = new AtomicInteger();
+        final TelegramApiRequestException error = createRequestException(403, null);
+        final RetryingTelegramClient client = new RetryingTelegramClientBuilder(createTelegramClient(calls, error, RESULT)).build();
+
+        final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> client.executeAsync(createMessage()).get(5, TimeUnit.SECONDS));
+        Assertions.assertSame(error, exception.getCause());
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void retriesNetworkErrorsOfIdempotentMethodsOnly() throws TelegramApiException {
+        final TelegramApiException error = new TelegramApiException("Connection reset");
+
+        final AtomicInteger sendCalls = new AtomicInteger();
+        final RetryingTelegramClient sendClient = new RetryingTelegramClientBuilder(createTelegramClient(sendCalls, error, RESULT))
+                .backoff(Duration.ofMillis(1), Duration.ofMillis(1))
+                .build();
+        Assertions.assertSame(error, Assertions.assertThrows(TelegramApiException.class, () -> sendClient.execute(createMessage())));
+        Assertions.assertEquals(1, sendCalls.get());
+
+        final AtomicInteger getCalls = new AtomicInteger();
+        final RetryingTelegramClient getClient = new RetryingTelegramClientBuilder(createTelegramClient(getCalls, error, RESULT))
+                .backoff(Duration.ofMillis(1), Duration.ofMillis(1))
+                .build();
+        Assertions.assertEquals(RESULT, getClient.execute(new GetMe()));
+        Assertions.assertEquals(2, getCalls.get());
+    }
+
+    @Test
+    public void doesNotRetryStreamUploads() {
+        final AtomicInteger calls = new AtomicInteger();
+        final TelegramApiRequestException error = createRequestException(500, null);
+        final RetryingTelegramClient client = new RetryingTelegramClientBuilder(createTelegramClient(calls, error, RESULT))
+                .backoff(Duration.ofMillis(1), Duration.ofMillis(1))
+                .build();
+
+        final SendDocument sendDocument = SendDocument.builder()
+                .chatId("1")
+                .document(new InputFile(new ByteArrayInputStream(new byte[]{1, 2, 3}), "file.bin"))
+                .build();
+        Assertions.assertSame(error, Assertions.assertThrows(TelegramApiRequestException.class, () -> client.execute(sendDocument)));
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    private static SendMessage createMessage() {
+        return SendMessage.builder().chatId("1").text("Hello").build();
+    }
+
+    private static TelegramApiRequestException createRequestException(int errorCode, Integer retryAfter) {
+        final ResponseParameters parameters = retryAfter != null ? new ResponseParameters() {
+            @Override
+            public Integer getRetryAfter() {
+                return retryAfter;
+            }
+        } : null;
+
+        return new TelegramApiRequestException("Error " + errorCode) {
+            @Override
+            public Integer getErrorCode() {
+                return errorCode;
+            }
+
+            @Override
+            public ResponseParameters getParameters() {
+                return parameters;
+            }
+        };
+    }
+
+    private static TelegramClient createTelegramClient(AtomicInteger calls, Object... outcomes) {
+        final Queue<Object> pending = new ArrayDeque<>(List.of(outcomes));
+        return (TelegramClient) Proxy.newProxyInstance(RetryingTelegramClientTest.class.getClassLoader(), new Class<?>[]{TelegramClient.class}, (proxy, method, args) -> {
+            calls.incrementAndGet();
+            final Object outcome = pending.poll();
+            final boolean async = method.getReturnType() == CompletableFuture.class;
+            if (outcome instanceof Throwable throwable) {
+                if (async) {
+                    return CompletableFuture.failedFuture(throwable);
+                }
+                throw throwable;
+            }
+            return async ? CompletableFuture.completedFuture(outcome) : outcome;
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.unafraid.telegrambot;
+
+import com.github.unafraid.telegrambot.dispatch.UpdateDeduplicator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.Duration;
+import java.util.List;
+
+public class UpdateDeduplicatorTest {
+    @Test
+    public void dropsDuplicatesWithinWindow() {
+        final UpdateDeduplicator deduplicator = new UpdateDeduplicator(100);
+        Assertions.assertEquals(128, deduplicator.getWindow());
+
+        Assertions.assertFalse(deduplicator.isDuplicate(1000));
+        Assertions.assertFalse(deduplicator.isDuplicate(1002));
+        Assertions.assertTrue(deduplicator.isDuplicate(1000));
+        Assertions.assertTrue(deduplicator.isDuplicate(1002));
+
+        // Skipped ids may still arrive out of order
+        Assertions.assertFalse(deduplicator.isDuplicate(1001));
+        Assertions.assertTrue(deduplicator.isDuplicate(1001));
+
+        // Moving the window forward forgets the ids that fell out of it
+        Assertions.assertFalse(deduplicator.isDuplicate(1100));
+        Assertions.assertTrue(deduplicator.isDuplicate(1002));
+        Assertions.assertFalse(deduplicator.isDuplicate(1130));
+        Assertions.assertFalse(deduplicator.isDuplicate(1002));
+    }
+
+    @Test
+    public void keepsWindowWhenLateUpdateArrives() {
+        final UpdateDeduplicator deduplicator = new UpdateDeduplicator(64);
+        Assertions.assertFalse(deduplicator.isDuplicate(1000));
+        Assertions.assertFalse(deduplicator.isDuplicate(1001));
+        Assertions.assertFalse(deduplicator.isDuplicate(1002));
+
+        // Older than the window, let through without forgetting the recent ids
+        Assertions.assertFalse(deduplicator.isDuplicate(10));
+        Assertions.assertFalse(deduplicator.isDuplicate(10));
+        Assertions.assertTrue(deduplicator.isDuplicate(1001));
+        Assertions.assertTrue(deduplicator.isDuplicate(1002));
+        Assertions.assertFalse(deduplicator.isDuplicate(1003));
+    }
+
+    @Test
+    public void startsOverWhenIdsRestart() throws InterruptedException {
+        final UpdateDeduplicator deduplicator = new UpdateDeduplicator(64, Duration.ofMillis(50));
+        Assertions.assertFalse(deduplicator.isDuplicate(500_000));
+        Thread.sleep(100);
+        Assertions.assertFalse(deduplicator.isDuplicate(7));
+        Assertions.assertFalse(deduplicator.isDuplicate(8));
+        Assertions.assertTrue(deduplicator.isDuplicate(7));
+        Assertions.assertFalse(deduplicator.isDuplicate(500_000));
+    }
+
+    @Test
+    public void filterKeepsListWithoutDuplicates() {
+        final UpdateDeduplicator deduplicator = new UpdateDeduplicator(64);
+        final List<Update> updates = List.of(createUpdate(1), createUpdate(2), createUpdate(3));
+        Assertions.assertSame(updates, deduplicator.filter(updates));
+
+        final List<Update> retried = List.of(createUpdate(3), createUpdate(4), createUpdate(2), createUpdate(5));
+        final List<Update> filtered = deduplicator.filter(retried);
+        Assertions.assertEquals(2, filtered.size());
+        Assertions.assertEquals(4, (int) filtered.get(0).getUpdateId());
+        Assertions.assertEquals(5, (int) filtered.get(1).getUpdateId());
+    }
+
+    private static Update createUpdate(int updateId) {
+        final Update update = new Update();
+        update.setUpdateId(updateId);
+        return update;
+    }
+}
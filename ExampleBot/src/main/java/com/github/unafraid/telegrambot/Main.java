@@ -2,6 +2,8 @@ package com.github.unafraid.telegrambot;
 
 import com.github.unafraid.telegrambot.bots.AbstractTelegramBot;
 import com.github.unafraid.telegrambot.bots.DefaultTelegramBot;
+import com.github.unafraid.telegrambot.client.RateLimitedTelegramClientBuilder;
+import com.github.unafraid.telegrambot.client.RetryingTelegramClientBuilder;
 import com.github.unafraid.telegrambot.handlers.IAccessLevelValidator;
 import com.github.unafraid.telegrambot.handlers.ICommandHandler;
 import com.github.unafraid.telegrambot.handlers.ITelegramHandler;
@@ -26,9 +28,14 @@ public class Main {
     private static final Logger LOGGER = LoggerFactory.getLogger(Main.class);
 
     public static void main(String[] args) throws Exception {
-        final TelegramClient telegramClient = new OkHttpTelegramClient(TOKEN);
+        // Keep outgoing calls within Telegram's per chat and global limits and retry the ones rejected anyway
+        final TelegramClient rateLimitedClient = new RateLimitedTelegramClientBuilder(new OkHttpTelegramClient(TOKEN)).build();
+        final TelegramClient telegramClient = new RetryingTelegramClientBuilder(rateLimitedClient).build();
         final DefaultTelegramBot telegramBot = new DefaultTelegramBot(telegramClient);
 
+        // Fetch the bot's username in background before the first update arrives
+        telegramBot.warmUpBotUsername();
+
         // Create new instance of TelegramBotsAPI
         TelegramBotsLongPollingApplication botsApplication = new TelegramBotsLongPollingApplication();
 
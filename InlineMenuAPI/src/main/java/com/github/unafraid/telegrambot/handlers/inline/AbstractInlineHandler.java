@@ -57,12 +57,21 @@ public abstract class AbstractInlineHandler implements ICommandHandler, IMessage
      * Registers the default menu
      */
     private void init() {
-        final InlineContext ctx = new InlineContext();
+        final InlineContext ctx = createContext();
         final InlineMenuBuilder builder = new InlineMenuBuilder(ctx);
         registerMenu(ctx, builder);
         defaultMenu = builder.build();
     }
 
+    /**
+     * Creates the context of the menus, override to change how long and for how many users the menu state is kept
+     *
+     * @return new inline context
+     */
+    protected InlineContext createContext() {
+        return new InlineContext(getClass().getName());
+    }
+
     /**
      * Registers menu to this inline handler
      *
@@ -73,29 +82,27 @@ public abstract class AbstractInlineHandler implements ICommandHandler, IMessage
 
     @Override
     public boolean onCallbackQuery(AbstractTelegramBot bot, Update update, CallbackQuery query) throws TelegramApiException {
-        final InlineUserData userData = defaultMenu.getContext().getUserData(query.getFrom().getId());
-        if (userData.getActiveMenu() == null) {
-            return false;
-        }
+        final InlineContext context = defaultMenu.getContext();
+        InlineUserData userData = context.findUserData(query.getFrom().getId());
+        final InlineMenu activeMenu = userData != null ? userData.getActiveMenu() : null;
+        InlineButton button = activeMenu != null ? activeMenu.getButton(query.getData()) : null;
+        if (button == null) {
+            // The user data is gone after restart or idle eviction, the keyboard keeps working through the menu that owns the button
+            final InlineMenu menu = context.findMenu(query.getData());
+            button = menu != null ? menu.getButton(query.getData()) : null;
+            if (button == null) {
+                return false;
+            }
 
-        final InlineMenu activeMenu = userData.getActiveMenu();
-        for (InlineButton button : activeMenu.getButtons()) {
-            if (button.getUUID().equals(query.getData())) {
-                userData.setActiveButton(button);
-                final IInlineCallbackEvent event = button.getOnQueryCallback();
-                final AnswerCallbackQuery answerCallbackQuery = AnswerCallbackQuery.builder().callbackQueryId(query.getId()).build();
-                if (event != null) {
-                    if (event.onCallbackEvent(new InlineCallbackEvent(button.getContext(), button, bot, update, query))) {
-                        final InlineMenu subMenu = button.getSubMenu();
-                        if (subMenu != null) {
-                            bot.execute(answerCallbackQuery);
-                            userData.editCurrentMenu(bot, query.getMessage(), subMenu.getName() != null ? subMenu.getName() : "Sub menu", subMenu.getLayout(), subMenu);
-                        }
-                        return true;
-                    }
-                    return false;
-                }
+            userData = context.getUserData(query.getFrom().getId());
+            userData.setActiveMenu(menu);
+        }
 
+        userData.setActiveButton(button);
+        final IInlineCallbackEvent event = button.getOnQueryCallback();
+        final AnswerCallbackQuery answerCallbackQuery = AnswerCallbackQuery.builder().callbackQueryId(query.getId()).build();
+        if (event != null) {
+            if (event.onCallbackEvent(new InlineCallbackEvent(button.getContext(), button, bot, update, query))) {
                 final InlineMenu subMenu = button.getSubMenu();
                 if (subMenu != null) {
                     bot.execute(answerCallbackQuery);
@@ -103,9 +110,15 @@ public abstract class AbstractInlineHandler implements ICommandHandler, IMessage
                 }
                 return true;
             }
+            return false;
         }
 
-        return false;
+        final InlineMenu subMenu = button.getSubMenu();
+        if (subMenu != null) {
+            bot.execute(answerCallbackQuery);
+            userData.editCurrentMenu(bot, query.getMessage(), subMenu.getName() != null ? subMenu.getName() : "Sub menu", subMenu.getLayout(), subMenu);
+        }
+        return true;
     }
 
     @Override
@@ -136,7 +149,11 @@ public abstract class AbstractInlineHandler implements ICommandHandler, IMessage
             return false;
         }
 
-        final InlineUserData userData = defaultMenu.getContext().getUserData(message.getFrom().getId());
+        final InlineUserData userData = defaultMenu.getContext().findUserData(message.getFrom().getId());
+        if (userData == null) {
+            return false;
+        }
+
         final InlineButton activeButton = userData.getActiveButton();
         if (activeButton == null) {
             return false;
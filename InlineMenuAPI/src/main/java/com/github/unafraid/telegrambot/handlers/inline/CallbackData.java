@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.handlers.inline;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact callback data of inline buttons, the button id optionally followed by {@link #SEPARATOR} and a parameter
+ *
+ * @author UnAfraid
+ */
+final class CallbackData {
+    /**
+     * Separates the button id from the parameter
+     */
+    static final char SEPARATOR = ':';
+
+    /**
+     * The maximum length of callback data accepted by Telegram in bytes
+     */
+    static final int MAX_LENGTH = 64;
+
+    /**
+     * The maximum length of explicitly set button id in bytes, the rest is left for parameters
+     */
+    static final int MAX_ID_LENGTH = 32;
+
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private CallbackData() {
+    }
+
+    /**
+     * @param value the non-negative value
+     * @return the value in as few base64url digits as possible
+     */
+    static String encode(int value) {
+        final StringBuilder sb = new StringBuilder(6);
+        do {
+            sb.append(ALPHABET[value & 63]);
+            value >>>= 6;
+        } while (value != 0);
+        return sb.toString();
+    }
+
+    /**
+     * @param value  the value
+     * @param length the amount of base64url digits, higher bits of the value are ignored
+     * @return the value in exactly the given amount of base64url digits
+     */
+    static String encode(int value, int length) {
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ALPHABET[value & 63];
+            value >>>= 6;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param callbackData the callback data
+     * @return the button id part of the callback data
+     */
+    static String getId(String callbackData) {
+        final int separator = callbackData.indexOf(SEPARATOR);
+        return separator == -1 ? callbackData : callbackData.substring(0, separator);
+    }
+
+    /**
+     * @param callbackData the callback data
+     * @return the parameter part of the callback data, {@code null} if there is none
+     */
+    static String getParameter(String callbackData) {
+        final int separator = callbackData.indexOf(SEPARATOR);
+        return separator == -1 ? null : callbackData.substring(separator + 1);
+    }
+
+    /**
+     * @param value the value
+     * @return the length of the value in bytes once encoded
+     */
+    static int length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
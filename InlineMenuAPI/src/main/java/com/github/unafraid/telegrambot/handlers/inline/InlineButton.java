@@ -25,8 +25,6 @@ import com.github.unafraid.telegrambot.handlers.inline.events.IInlineCallbackEve
 import com.github.unafraid.telegrambot.handlers.inline.events.IInlineMessageEvent;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 
-import java.util.UUID;
-
 /**
  * @author UnAfraid
  */
@@ -38,7 +36,7 @@ public class InlineButton {
     private final IInlineCallbackEvent onQueryCallback;
     private final IInlineMessageEvent onInputMessage;
     private final InlineMenu subMenu;
-    private final String uuid = UUID.randomUUID().toString();
+    private final String callbackData;
 
     /**
      * Creates new Inline button from builder
@@ -53,6 +51,7 @@ public class InlineButton {
         this.onQueryCallback = builder.onQueryCallback;
         this.onInputMessage = builder.onInputMessage;
         this.subMenu = builder.subMenu;
+        this.callbackData = builder.callbackData != null ? builder.callbackData : context.nextCallbackData();
     }
 
     /**
@@ -105,10 +104,19 @@ public class InlineButton {
     }
 
     /**
-     * @return the uuid
+     * @return the callback data
+     * @deprecated the buttons no longer use UUIDs, use {@link #getCallbackData()} instead
      */
+    @Deprecated
     public String getUUID() {
-        return uuid;
+        return callbackData;
+    }
+
+    /**
+     * @return the callback data identifying this button, few characters long
+     */
+    public String getCallbackData() {
+        return callbackData;
     }
 
     /**
@@ -117,7 +125,34 @@ public class InlineButton {
     public InlineKeyboardButton createInlineKeyboardButton() {
         return InlineKeyboardButton.builder().
                 text(name).
-                callbackData(uuid).
+                callbackData(callbackData).
                 build();
     }
+
+    /**
+     * Creates keyboard button that passes the parameter back along with the callback query, read it with {@link #getCallbackParameter(String)}
+     *
+     * @param parameter the parameter
+     * @return the {@link InlineKeyboardButton}
+     * @throws IllegalArgumentException if the callback data doesn't fit into 64 bytes
+     */
+    public InlineKeyboardButton createInlineKeyboardButton(String parameter) {
+        final String data = callbackData + CallbackData.SEPARATOR + parameter;
+        if (CallbackData.length(data) > CallbackData.MAX_LENGTH) {
+            throw new IllegalArgumentException("Callback data exceeds " + CallbackData.MAX_LENGTH + " bytes: " + data);
+        }
+
+        return InlineKeyboardButton.builder().
+                text(name).
+                callbackData(data).
+                build();
+    }
+
+    /**
+     * @param callbackData the callback data of the callback query
+     * @return the parameter passed to {@link #createInlineKeyboardButton(String)}, {@code null} if there is none
+     */
+    public static String getCallbackParameter(String callbackData) {
+        return callbackData != null ? CallbackData.getParameter(callbackData) : null;
+    }
 }
@@ -37,6 +37,7 @@ public class InlineButtonBuilder {
 	IInlineCallbackEvent onQueryCallback;
 	IInlineMessageEvent onInputMessage;
 	InlineMenu subMenu;
+	String callbackData;
 	
 	/**
 	 * Creates new Inline Button Builder instance
@@ -44,6 +45,8 @@ public class InlineButtonBuilder {
 	 * @param context context
 	 */
 	public InlineButtonBuilder(InlineContext context) {
+		Objects.requireNonNull(context);
+		
 		this.context = context;
 	}
 	
@@ -118,6 +121,21 @@ public class InlineButtonBuilder {
 		return this;
 	}
 	
+	/**
+	 * Sets the callback data of the button instead of the one generated by the context, keeps old keyboards working even if the menus are registered differently after restart
+	 *
+	 * @param callbackData the callback data, up to 32 bytes without ':'
+	 * @return this builder
+	 */
+	public InlineButtonBuilder callbackData(String callbackData) {
+		Objects.requireNonNull(callbackData);
+		if (callbackData.isEmpty() || (callbackData.indexOf(CallbackData.SEPARATOR) != -1) || (CallbackData.length(callbackData) > CallbackData.MAX_ID_LENGTH)) {
+			throw new IllegalArgumentException("Callback data must be between 1 and " + CallbackData.MAX_ID_LENGTH + " bytes long without '" + CallbackData.SEPARATOR + "'!");
+		}
+		this.callbackData = callbackData;
+		return this;
+	}
+	
 	/**
 	 * Builds inline button
 	 *
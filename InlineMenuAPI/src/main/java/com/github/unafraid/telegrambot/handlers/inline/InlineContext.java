@@ -21,23 +21,134 @@
  */
 package com.github.unafraid.telegrambot.handlers.inline;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author UnAfraid
  */
 public class InlineContext {
-	private final Map<Long, InlineUserData> usersData = new ConcurrentHashMap<>();
+	public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofHours(24);
+	public static final int DEFAULT_MAX_USERS = 1_000_000;
+	
+	private static final int CALLBACK_PREFIX_LENGTH = 4;
+	// One entry per namespace, contexts re-created with the same namespace reuse it
+	private static final Map<String, String> NAMESPACES_BY_PREFIX = new ConcurrentHashMap<>();
+	
+	private final InlineUserDataStore usersData;
+	private final String callbackPrefix;
+	private final AtomicInteger nextButtonId = new AtomicInteger();
+	private final Map<String, InlineMenu> menusByCallbackData = new ConcurrentHashMap<>();
+	
+	/**
+	 * Creates new inline context with empty namespace, all such contexts generate the same callback data
+	 *
+	 * @deprecated the buttons of different contexts collide, use {@link #InlineContext(String)} with the class name of the handler instead
+	 */
+	@Deprecated
+	public InlineContext() {
+		this("");
+	}
+	
+	/**
+	 * Creates new inline context, the callback data of its buttons starts with short hash of the namespace so the buttons stay the same after restart and don't collide with the buttons of other namespaces
+	 *
+	 * @param namespace the namespace, for example the class name of the handler
+	 * @throws IllegalStateException if the hash of the namespace collides with the one of another namespace
+	 */
+	public InlineContext(String namespace) {
+		this(namespace, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_USERS);
+	}
 	
 	/**
-	 * Returns user data by user id
+	 * Creates new inline context, the data of users idle longer than the idle timeout is discarded and once there are more users than the maximum the least recently active ones are discarded first
+	 *
+	 * @param namespace   the namespace, for example the class name of the handler
+	 * @param idleTimeout how long the data of inactive user is kept
+	 * @param maxUsers    the maximum amount of users whose data is kept
+	 * @throws IllegalStateException if the hash of the namespace collides with the one of another namespace
+	 */
+	public InlineContext(String namespace, Duration idleTimeout, int maxUsers) {
+		Objects.requireNonNull(namespace);
+		Objects.requireNonNull(idleTimeout);
+		if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+			throw new IllegalArgumentException("Idle timeout must be positive!");
+		}
+		if (maxUsers < 1) {
+			throw new IllegalArgumentException("Max users must be at least 1!");
+		}
+		
+		this.callbackPrefix = reserveCallbackPrefix(namespace);
+		this.usersData = new InlineUserDataStore(idleTimeout, maxUsers);
+	}
+	
+	/**
+	 * The prefix depends only on the namespace, so it can't change with the order the contexts are created in
+	 *
+	 * @param namespace the namespace
+	 * @return the callback prefix derived from the namespace
+	 * @throws IllegalStateException if another namespace has the same prefix
+	 */
+	private static String reserveCallbackPrefix(String namespace) {
+		final String prefix = CallbackData.encode(namespace.hashCode(), CALLBACK_PREFIX_LENGTH);
+		final String owner = NAMESPACES_BY_PREFIX.putIfAbsent(prefix, namespace);
+		if ((owner != null) && !owner.equals(namespace)) {
+			throw new IllegalStateException("Callback prefix of namespace " + namespace + " collides with namespace " + owner + ", use different namespace!");
+		}
+		return prefix;
+	}
+	
+	/**
+	 * The ids are assigned in the order the buttons are created, so the buttons get the same callback data after restart as long as the menus are registered the same way
+	 *
+	 * @return the callback data of the next button created within this context
+	 */
+	String nextCallbackData() {
+		return callbackPrefix + CallbackData.encode(nextButtonId.getAndIncrement());
+	}
+	
+	/**
+	 * Indexes the buttons of the menu, so they are found without user's active menu, for example when keyboard sent before restart is pressed
+	 *
+	 * @param menu the menu
+	 */
+	void registerMenu(InlineMenu menu) {
+		for (InlineButton button : menu.getButtons()) {
+			menusByCallbackData.putIfAbsent(button.getCallbackData(), menu);
+		}
+	}
+	
+	/**
+	 * Returns the menu of the pressed button without depending on the state of the user
+	 *
+	 * @param callbackData the callback data of the pressed button, parameters included
+	 * @return the first menu registered with the button, {@code null} if there is none
+	 */
+	public InlineMenu findMenu(String callbackData) {
+		return callbackData != null ? menusByCallbackData.get(CallbackData.getId(callbackData)) : null;
+	}
+	
+	/**
+	 * Returns user data by user id, creates it if the user has none
 	 *
 	 * @param id user id
 	 * @return the inline user data
 	 */
 	public InlineUserData getUserData(long id) {
-		return usersData.computeIfAbsent(id, InlineUserData::new);
+		return usersData.getOrCreate(id);
+	}
+	
+	/**
+	 * Returns user data by user id without creating it, use it for updates that don't open a menu
+	 *
+	 * @param id user id
+	 * @return the inline user data or {@code null} if the user has none
+	 */
+	public InlineUserData findUserData(long id) {
+		return usersData.find(id);
 	}
 	
 	/**
@@ -47,6 +158,13 @@ public class InlineContext {
 	 * @return whether the user data was removed or not
 	 */
 	public boolean clear(long id) {
-		return usersData.remove(id) != null;
+		return usersData.remove(id);
+	}
+	
+	/**
+	 * @return the amount of users whose data is kept
+	 */
+	public int getUsersCount() {
+		return usersData.size();
 	}
 }
\ No newline at end of file
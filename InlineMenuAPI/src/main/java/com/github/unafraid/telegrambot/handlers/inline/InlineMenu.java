@@ -21,9 +21,13 @@
  */
 package com.github.unafraid.telegrambot.handlers.inline;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.github.unafraid.telegrambot.handlers.inline.layout.IInlineMenuLayout;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 
 /**
  * @author UnAfraid
@@ -34,6 +38,8 @@ public class InlineMenu {
 	private final InlineMenu parentMenu;
 	private final List<InlineButton> buttons;
 	private final IInlineMenuLayout layout;
+	private volatile Map<String, InlineButton> buttonsById;
+	private final Map<IInlineMenuLayout, InlineKeyboardMarkup> markups = new ConcurrentHashMap<>();
 	
 	/**
 	 * Creates new inline menu
@@ -46,6 +52,22 @@ public class InlineMenu {
 		this.parentMenu = builder.parentMenu;
 		this.buttons = builder.buttons;
 		this.layout = builder.layout;
+		this.buttonsById = indexButtons(buttons);
+		context.registerMenu(this);
+	}
+	
+	/**
+	 * Callback queries resolve their button in constant time no matter how many buttons the menu has
+	 *
+	 * @param buttons the buttons
+	 * @return the buttons by their callback data
+	 */
+	private static Map<String, InlineButton> indexButtons(List<InlineButton> buttons) {
+		final Map<String, InlineButton> buttonsById = new HashMap<>((int) (buttons.size() / 0.75f) + 1);
+		for (InlineButton button : buttons) {
+			buttonsById.putIfAbsent(button.getCallbackData(), button);
+		}
+		return buttonsById;
 	}
 	
 	/**
@@ -76,6 +98,38 @@ public class InlineMenu {
 		return buttons;
 	}
 	
+	/**
+	 * @param callbackData the callback data of the pressed button, parameters included
+	 * @return the button of this menu with the given callback data, {@code null} if there is none
+	 */
+	public InlineButton getButton(String callbackData) {
+		return callbackData != null ? buttonsById.get(CallbackData.getId(callbackData)) : null;
+	}
+	
+	/**
+	 * Returns the markup of this menu generated by the layout, it is generated once per layout and reused by all users unless the layout isn't {@link IInlineMenuLayout#isCacheable() cacheable}
+	 *
+	 * @param layout the layout
+	 * @return the markup
+	 */
+	public InlineKeyboardMarkup getMarkup(IInlineMenuLayout layout) {
+		if (!layout.isCacheable()) {
+			return layout.generateLayout(buttons);
+		}
+		
+		final InlineKeyboardMarkup markup = markups.get(layout);
+		return markup != null ? markup : markups.computeIfAbsent(layout, key -> key.generateLayout(buttons));
+	}
+	
+	/**
+	 * Discards the generated markups and reindexes the buttons, call it after changing the buttons of the menu
+	 */
+	public void invalidate() {
+		buttonsById = indexButtons(buttons);
+		markups.clear();
+		context.registerMenu(this);
+	}
+	
 	/**
 	 * @return the layout
 	 */
@@ -48,6 +48,7 @@ public class InlineUserData {
 	private InlineButton activeButton;
 	private final AtomicInteger state = new AtomicInteger();
 	private final ReentrantReadWriteLock activeLock = new ReentrantReadWriteLock();
+	private volatile long lastAccessTick;
 	
 	/**
 	 * Creates new inline user data instance
@@ -65,6 +66,24 @@ public class InlineUserData {
 		return id;
 	}
 	
+	/**
+	 * Records the access, the value is written only once per tick to keep the lookups cheap
+	 *
+	 * @param tick the current tick of the store
+	 */
+	void touch(long tick) {
+		if (lastAccessTick != tick) {
+			lastAccessTick = tick;
+		}
+	}
+	
+	/**
+	 * @return the tick of the store the user data was accessed the last time
+	 */
+	long getLastAccessTick() {
+		return lastAccessTick;
+	}
+	
 	/**
 	 * @return the state
 	 */
@@ -161,7 +180,7 @@ public class InlineUserData {
 		Objects.requireNonNull(menu);
 		
 		activeMenu = menu;
-		final InlineKeyboardMarkup markup = layout.generateLayout(activeMenu.getButtons());
+		final InlineKeyboardMarkup markup = menu.getMarkup(layout);
 		BotUtil.sendMessage(bot, message, text, false, true, markup);
 	}
 	
@@ -187,7 +206,7 @@ public class InlineUserData {
 		}
 		
 		activeMenu = menu;
-		final InlineKeyboardMarkup markup = layout.generateLayout(activeMenu.getButtons());
+		final InlineKeyboardMarkup markup = menu.getMarkup(layout);
 		if (message instanceof Message msg) {
 			BotUtil.editMessage(bot, msg, text, true, markup);
 		}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.handlers.inline;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.github.unafraid.telegrambot.util.ConcurrentLongObjectMap;
+
+/**
+ * Keeps the data of the users who used the menus recently, users idle longer than the idle timeout and the least recently active users above the maximum are evicted<br>
+ * The expiration is tracked by timer wheel advanced by the lookups themselves, an access only records the current tick and the entry is moved to its new slot once its old one comes due.
+ *
+ * @author UnAfraid
+ */
+final class InlineUserDataStore {
+	private static final int TICKS_PER_IDLE_TIMEOUT = 60;
+	// Must be a power of two larger than the ticks per idle timeout so entries never wrap into the slot being expired
+	private static final int WHEEL_SIZE = 64;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+	
+	private final ConcurrentLongObjectMap<InlineUserData> usersData = new ConcurrentLongObjectMap<>();
+	private final Queue<InlineUserData>[] wheel;
+	private final ReentrantLock maintenanceLock = new ReentrantLock();
+	private final long startTime = System.nanoTime();
+	private final long tickNanos;
+	private final int maxUsers;
+	private volatile long expiredTick;
+	
+	@SuppressWarnings("unchecked")
+	InlineUserDataStore(Duration idleTimeout, int maxUsers) {
+		this.tickNanos = Math.max(1, idleTimeout.toNanos() / TICKS_PER_IDLE_TIMEOUT);
+		this.maxUsers = maxUsers;
+		this.wheel = new Queue[WHEEL_SIZE];
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			wheel[i] = new ConcurrentLinkedQueue<>();
+		}
+	}
+	
+	/**
+	 * @param id the user id
+	 * @return the user data or {@code null} if the user has none
+	 */
+	InlineUserData find(long id) {
+		final long tick = currentTick();
+		final InlineUserData userData = usersData.get(id);
+		if (userData != null) {
+			userData.touch(tick);
+		}
+		expire(tick);
+		return userData;
+	}
+	
+	/**
+	 * @param id the user id
+	 * @return the user data, created if the user had none
+	 */
+	InlineUserData getOrCreate(long id) {
+		final long tick = currentTick();
+		InlineUserData userData = usersData.get(id);
+		if (userData == null) {
+			final InlineUserData created = new InlineUserData(id);
+			created.touch(tick);
+			userData = usersData.putIfAbsent(id, created);
+			if (userData == null) {
+				wheel[slot(expirationTick(created))].add(created);
+				if (usersData.size() > maxUsers) {
+					evictLeastRecentlyActive();
+				}
+				expire(tick);
+				return created;
+			}
+		}
+		userData.touch(tick);
+		expire(tick);
+		return userData;
+	}
+	
+	/**
+	 * @param id the user id
+	 * @return {@code true} if the user had data, {@code false} otherwise
+	 */
+	boolean remove(long id) {
+		// The entry is dropped from the wheel once its slot comes due
+		return usersData.remove(id) != null;
+	}
+	
+	/**
+	 * @return the amount of users having data
+	 */
+	int size() {
+		return usersData.size();
+	}
+	
+	/**
+	 * Evicts the users whose slots came due since the last time and were idle for the whole idle timeout, the rest are moved to the slot of their last access<br>
+	 * Skipped while another thread maintains the store, the slots stay due so the next lookup picks them up.
+	 *
+	 * @param tick the current tick
+	 */
+	private void expire(long tick) {
+		if ((tick <= expiredTick) || !maintenanceLock.tryLock()) {
+			return;
+		}
+		
+		try {
+			final List<InlineUserData> active = new ArrayList<>();
+			for (long due = Math.max(expiredTick + 1, tick - WHEEL_MASK); due <= tick; due++) {
+				final Queue<InlineUserData> bucket = wheel[slot(due)];
+				InlineUserData userData;
+				while ((userData = bucket.poll()) != null) {
+					if (usersData.get(userData.getId()) != userData) {
+						continue;
+					}
+					
+					if (expirationTick(userData) <= tick) {
+						usersData.remove(userData.getId(), userData);
+					} else {
+						active.add(userData);
+					}
+				}
+			}
+			expiredTick = tick;
+			reschedule(active, 0);
+		} finally {
+			maintenanceLock.unlock();
+		}
+	}
+	
+	/**
+	 * Evicts users in the order their slots come due until the maximum is respected, when everyone left was active lately they are evicted in the order they were found<br>
+	 * Waits for the thread maintaining the store, so every user added above the maximum gets another one evicted.
+	 */
+	private void evictLeastRecentlyActive() {
+		maintenanceLock.lock();
+		try {
+			// Users added concurrently may not be in the wheel yet, their creators evict for them once they are
+			while ((usersData.size() > maxUsers) && evictOnce()) {
+				// Keep evicting
+			}
+		} finally {
+			maintenanceLock.unlock();
+		}
+	}
+	
+	/**
+	 * @return {@code true} if any user was evicted, {@code false} otherwise
+	 */
+	private boolean evictOnce() {
+		final int size = usersData.size();
+		final List<InlineUserData> active = new ArrayList<>();
+		for (long due = expiredTick + 1; (due <= (expiredTick + WHEEL_SIZE)) && (usersData.size() > maxUsers); due++) {
+			final Queue<InlineUserData> bucket = wheel[slot(due)];
+			InlineUserData userData;
+			while ((usersData.size() > maxUsers) && ((userData = bucket.poll()) != null)) {
+				if (usersData.get(userData.getId()) != userData) {
+					continue;
+				}
+				
+				if (expirationTick(userData) <= due) {
+					usersData.remove(userData.getId(), userData);
+				} else {
+					active.add(userData);
+				}
+			}
+		}
+		
+		int evicted = 0;
+		while ((evicted < active.size()) && (usersData.size() > maxUsers)) {
+			final InlineUserData userData = active.get(evicted++);
+			usersData.remove(userData.getId(), userData);
+		}
+		reschedule(active, evicted);
+		return usersData.size() < size;
+	}
+	
+	private void reschedule(List<InlineUserData> active, int fromIndex) {
+		for (int i = fromIndex; i < active.size(); i++) {
+			final InlineUserData userData = active.get(i);
+			wheel[slot(expirationTick(userData))].add(userData);
+		}
+	}
+	
+	private long currentTick() {
+		return (System.nanoTime() - startTime) / tickNanos;
+	}
+	
+	private static long expirationTick(InlineUserData userData) {
+		// The access could have happened at the very start of its tick, so one more tick is waited to cover the whole idle timeout
+		return userData.getLastAccessTick() + TICKS_PER_IDLE_TIMEOUT + 1;
+	}
+	
+	private static int slot(long tick) {
+		return (int) (tick & WHEEL_MASK);
+	}
+}
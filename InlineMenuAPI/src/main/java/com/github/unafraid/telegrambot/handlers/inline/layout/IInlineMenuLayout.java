@@ -35,4 +35,11 @@ public interface IInlineMenuLayout {
 	 * @return the generated markup
 	 */
 	InlineKeyboardMarkup generateLayout(List<InlineButton> buttons);
+	
+	/**
+	 * @return {@code true} if the layout always generates the same markup for the same buttons so it can be shared by all users of the menu, {@code false} to generate it every time the menu is shown
+	 */
+	default boolean isCacheable() {
+		return true;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.github.unafraid.telegrambot;
+
+import com.github.unafraid.telegrambot.bots.DefaultTelegramBot;
+import com.github.unafraid.telegrambot.handlers.inline.AbstractInlineHandler;
+import com.github.unafraid.telegrambot.handlers.inline.InlineButton;
+import com.github.unafraid.telegrambot.handlers.inline.InlineButtonBuilder;
+import com.github.unafraid.telegrambot.handlers.inline.InlineContext;
+import com.github.unafraid.telegrambot.handlers.inline.InlineMenuBuilder;
+import com.github.unafraid.telegrambot.handlers.inline.InlineUserData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AbstractInlineHandlerTest {
+    @Test
+    public void resolvesButtonsWithoutUserData() throws TelegramApiException {
+        final TestInlineHandler handler = new TestInlineHandler();
+        final DefaultTelegramBot bot = new DefaultTelegramBot(createClient());
+        final InlineContext context = handler.getDefaultMenu().getContext();
+
+        // Nobody opened the menu since restart
+        Assertions.assertNull(context.findUserData(7));
+        Assertions.assertTrue(handler.onCallbackQuery(bot, createUpdate(), createQuery(7, handler.first.getCallbackData())));
+        Assertions.assertEquals(List.of("First"), handler.pressed);
+        final InlineUserData userData = context.findUserData(7);
+        Assertions.assertNotNull(userData);
+        Assertions.assertSame(handler.getDefaultMenu(), userData.getActiveMenu());
+        Assertions.assertSame(handler.first, userData.getActiveButton());
+
+        // The user data was evicted while the keyboard of the sub menu was shown
+        Assertions.assertTrue(context.clear(7));
+        Assertions.assertTrue(handler.onCallbackQuery(bot, createUpdate(), createQuery(7, handler.nested.getCallbackData() + ":42")));
+        Assertions.assertEquals(List.of("First", "Nested"), handler.pressed);
+        Assertions.assertSame(handler.nested, context.findUserData(7).getActiveButton());
+        Assertions.assertEquals("Sub", context.findUserData(7).getActiveMenu().getName());
+
+        Assertions.assertFalse(handler.onCallbackQuery(bot, createUpdate(), createQuery(8, "unknown")));
+        Assertions.assertNull(context.findUserData(8));
+    }
+
+    @Test
+    public void prefersActiveMenuOfUser() throws TelegramApiException {
+        final TestInlineHandler handler = new TestInlineHandler();
+        final DefaultTelegramBot bot = new DefaultTelegramBot(createClient());
+        final InlineContext context = handler.getDefaultMenu().getContext();
+        final InlineUserData userData = context.getUserData(7);
+        userData.setActiveMenu(handler.getDefaultMenu());
+
+        Assertions.assertTrue(handler.onCallbackQuery(bot, createUpdate(), createQuery(7, handler.first.getCallbackData())));
+        Assertions.assertSame(userData, context.findUserData(7));
+        Assertions.assertSame(handler.getDefaultMenu(), userData.getActiveMenu());
+    }
+
+    private static TelegramClient createClient() {
+        return (TelegramClient) Proxy.newProxyInstance(AbstractInlineHandlerTest.class.getClassLoader(), new Class<?>[]{TelegramClient.class}, (proxy, method, args) -> null);
+    }
+
+    private static Update createUpdate() {
+        return new Update();
+    }
+
+    private static CallbackQuery createQuery(long userId, String data) {
+        final CallbackQuery query = new CallbackQuery();
+        query.setId("query");
+        query.setFrom(new User(userId, "User", false));
+        query.setData(data);
+        return query;
+    }
+
+    private static class TestInlineHandler extends AbstractInlineHandler {
+        final List<String> pressed = new ArrayList<>();
+        InlineButton first;
+        InlineButton nested;
+
+        @Override
+        public void registerMenu(InlineContext ctx, InlineMenuBuilder builder) {
+            first = new InlineButtonBuilder(ctx).name("First").onQueryCallback(event -> pressed.add(event.getButton().getName())).build();
+            nested = new InlineButtonBuilder(ctx).name("Nested").onQueryCallback(event -> pressed.add(event.getButton().getName())).build();
+            builder.name("Menu")
+                    .button(first)
+                    .button(new InlineButtonBuilder(ctx).name("Sub").menu(new InlineMenuBuilder(ctx).name("Sub").button(nested).build()).build());
+        }
+
+        @Override
+        public String getCommand() {
+            return "/menu";
+        }
+
+        @Override
+        public String getUsage() {
+            return "/menu";
+        }
+
+        @Override
+        public String getDescription() {
+            return "Opens the menu";
+        }
+    }
+}
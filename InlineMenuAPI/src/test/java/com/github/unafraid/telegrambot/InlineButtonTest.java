@@ -0,0 +1,89 @@
+package com.github.unafraid.telegrambot;
+
+import com.github.unafraid.telegrambot.handlers.inline.InlineButton;
+import com.github.unafraid.telegrambot.handlers.inline.InlineButtonBuilder;
+import com.github.unafraid.telegrambot.handlers.inline.InlineContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+public class InlineButtonTest {
+    @Test
+    public void generatesCompactUniqueCallbackData() {
+        final InlineContext context = new InlineContext("test");
+        final Set<String> callbackData = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            final InlineButton button = createButton(context);
+            Assertions.assertTrue(callbackData.add(button.getCallbackData()));
+            Assertions.assertTrue(button.getCallbackData().length() <= 7);
+            Assertions.assertEquals(-1, button.getCallbackData().indexOf(':'));
+        }
+    }
+
+    @Test
+    public void generatesCallbackDataInCreationOrder() {
+        final InlineContext context = new InlineContext("order");
+        final InlineButton first = createButton(context);
+        final InlineButton second = createButton(context);
+        Assertions.assertNotEquals(first.getCallbackData(), second.getCallbackData());
+
+        // Ids follow the order the buttons are created in, the prefix follows the namespace
+        final String prefix = first.getCallbackData().substring(0, 4);
+        Assertions.assertEquals(prefix, second.getCallbackData().substring(0, 4));
+        Assertions.assertEquals(prefix + "A", first.getCallbackData());
+        Assertions.assertEquals(prefix + "B", second.getCallbackData());
+    }
+
+    @Test
+    public void namespacesCallbackDataOfEveryContext() {
+        final Set<String> callbackData = new HashSet<>();
+        Assertions.assertTrue(callbackData.add(createButton(new InlineContext("first")).getCallbackData()));
+        Assertions.assertTrue(callbackData.add(createButton(new InlineContext("second")).getCallbackData()));
+
+        // Re-created contexts, for example after restart, generate the same callback data
+        Assertions.assertFalse(callbackData.add(createButton(new InlineContext("first")).getCallbackData()));
+        Assertions.assertFalse(callbackData.add(createButton(new InlineContext("second")).getCallbackData()));
+    }
+
+    @Test
+    public void rejectsNamespacesWithSamePrefix() {
+        Assertions.assertEquals("Aa".hashCode(), "BB".hashCode());
+        new InlineContext("Aa");
+        new InlineContext("Aa");
+        Assertions.assertThrows(IllegalStateException.class, () -> new InlineContext("BB"));
+    }
+
+    @Test
+    public void passesParameterWithinCallbackData() {
+        final InlineButton button = createButton(new InlineContext("parameter"));
+        final InlineKeyboardButton keyboardButton = button.createInlineKeyboardButton("item:42");
+        Assertions.assertEquals(button.getCallbackData() + ":item:42", keyboardButton.getCallbackData());
+        Assertions.assertEquals("item:42", InlineButton.getCallbackParameter(keyboardButton.getCallbackData()));
+        Assertions.assertNull(InlineButton.getCallbackParameter(button.getCallbackData()));
+        Assertions.assertNull(InlineButton.getCallbackParameter(null));
+    }
+
+    @Test
+    public void keepsCallbackDataWithin64Bytes() {
+        final InlineContext context = new InlineContext("limit");
+        final InlineButton button = createButton(context);
+        final String fits = "x".repeat(64 - button.getCallbackData().length() - 1);
+        Assertions.assertEquals(64, button.createInlineKeyboardButton(fits).getCallbackData().getBytes(StandardCharsets.UTF_8).length);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> button.createInlineKeyboardButton(fits + "x"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> button.createInlineKeyboardButton("\u00e9".repeat(30)));
+
+        final InlineButton explicit = new InlineButtonBuilder(context).name("Explicit").callbackData("x".repeat(32)).build();
+        Assertions.assertEquals("x".repeat(32), explicit.getCallbackData());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new InlineButtonBuilder(context).callbackData("x".repeat(33)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new InlineButtonBuilder(context).callbackData("a:b"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new InlineButtonBuilder(context).callbackData(""));
+    }
+
+    private static InlineButton createButton(InlineContext context) {
+        return new InlineButtonBuilder(context).name("Button").build();
+    }
+}
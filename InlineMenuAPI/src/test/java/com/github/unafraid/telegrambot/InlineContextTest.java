@@ -0,0 +1,99 @@
+package com.github.unafraid.telegrambot;
+
+import com.github.unafraid.telegrambot.handlers.inline.InlineContext;
+import com.github.unafraid.telegrambot.handlers.inline.InlineUserData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+public class InlineContextTest {
+    @Test
+    public void keepsUserDataUntilCleared() {
+        final InlineContext context = new InlineContext("test");
+        Assertions.assertNull(context.findUserData(1));
+        Assertions.assertEquals(0, context.getUsersCount());
+
+        final InlineUserData userData = context.getUserData(1);
+        Assertions.assertSame(userData, context.getUserData(1));
+        Assertions.assertSame(userData, context.findUserData(1));
+        Assertions.assertEquals(1, context.getUsersCount());
+
+        Assertions.assertTrue(context.clear(1));
+        Assertions.assertFalse(context.clear(1));
+        Assertions.assertNull(context.findUserData(1));
+        Assertions.assertEquals(0, context.getUsersCount());
+    }
+
+    @Test
+    public void expiresIdleUsers() throws InterruptedException {
+        // A tick of 10ms
+        final InlineContext context = new InlineContext("test", Duration.ofMillis(600), 100);
+        for (int id = 0; id < 10; id++) {
+            context.getUserData(id);
+            Thread.sleep(20);
+        }
+        Assertions.assertEquals(10, context.getUsersCount());
+
+        // Spans more ticks than the wheel has slots
+        Thread.sleep(1000);
+        Assertions.assertNull(context.findUserData(100));
+        Assertions.assertEquals(0, context.getUsersCount());
+    }
+
+    @Test
+    public void keepsUsersActiveOnAccess() throws InterruptedException {
+        final InlineContext context = new InlineContext("test", Duration.ofMillis(600), 100);
+        final InlineUserData active = context.getUserData(1);
+        context.getUserData(2);
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(100);
+            Assertions.assertSame(active, context.findUserData(1));
+        }
+
+        Assertions.assertNull(context.findUserData(2));
+        Assertions.assertEquals(1, context.getUsersCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyActiveUsers() throws InterruptedException {
+        // A tick of 100ms
+        final InlineContext context = new InlineContext("test", Duration.ofSeconds(6), 3);
+        context.getUserData(1);
+        Thread.sleep(150);
+        context.getUserData(2);
+        context.getUserData(3);
+        Thread.sleep(150);
+        Assertions.assertNotNull(context.findUserData(1));
+
+        context.getUserData(4);
+        Assertions.assertEquals(3, context.getUsersCount());
+        Assertions.assertNotNull(context.findUserData(1));
+        Assertions.assertNull(context.findUserData(2));
+
+        for (int id = 5; id < 1000; id++) {
+            context.getUserData(id);
+            Assertions.assertTrue(context.getUsersCount() <= 3);
+        }
+        Assertions.assertNotNull(context.findUserData(999));
+    }
+
+    @Test
+    public void respectsMaxUsersUnderContention() throws InterruptedException {
+        final InlineContext context = new InlineContext("test", Duration.ofHours(1), 50);
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final int offset = i * 10_000;
+            threads[i] = new Thread(() -> {
+                for (int id = 0; id < 10_000; id++) {
+                    context.getUserData(offset + id);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertTrue(context.getUsersCount() <= 50);
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.unafraid.telegrambot;
+
+import com.github.unafraid.telegrambot.handlers.inline.InlineButton;
+import com.github.unafraid.telegrambot.handlers.inline.InlineButtonBuilder;
+import com.github.unafraid.telegrambot.handlers.inline.InlineContext;
+import com.github.unafraid.telegrambot.handlers.inline.InlineMenu;
+import com.github.unafraid.telegrambot.handlers.inline.InlineMenuBuilder;
+import com.github.unafraid.telegrambot.handlers.inline.layout.IInlineMenuLayout;
+import com.github.unafraid.telegrambot.handlers.inline.layout.InlineFixedButtonsPerRowLayout;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InlineMenuTest {
+    @Test
+    public void findsButtonsByCallbackData() {
+        final InlineContext context = new InlineContext("lookup");
+        final List<InlineButton> buttons = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            buttons.add(new InlineButtonBuilder(context).name("Button " + i).build());
+        }
+        final InlineButton explicit = new InlineButtonBuilder(context).name("Explicit").callbackData("explicit").build();
+        final InlineMenu menu = new InlineMenuBuilder(context).name("Catalog").buttons(buttons).button(explicit).build();
+
+        for (InlineButton button : buttons) {
+            Assertions.assertSame(button, menu.getButton(button.getCallbackData()));
+            Assertions.assertSame(button, menu.getButton(button.createInlineKeyboardButton("page:2").getCallbackData()));
+        }
+        Assertions.assertSame(explicit, menu.getButton("explicit"));
+        Assertions.assertSame(explicit, menu.getButton("explicit:42"));
+        Assertions.assertNull(menu.getButton("missing"));
+        Assertions.assertNull(menu.getButton(null));
+    }
+
+    @Test
+    public void findsButtonsOfOwnMenuOnly() {
+        final InlineContext context = new InlineContext("menus");
+        final InlineButton first = new InlineButtonBuilder(context).name("First").build();
+        final InlineButton second = new InlineButtonBuilder(context).name("Second").build();
+        final InlineMenu firstMenu = new InlineMenuBuilder(context).name("First").button(first).build();
+        final InlineMenu secondMenu = new InlineMenuBuilder(context).name("Second").button(second).build();
+
+        Assertions.assertSame(first, firstMenu.getButton(first.getCallbackData()));
+        Assertions.assertNull(firstMenu.getButton(second.getCallbackData()));
+        Assertions.assertSame(second, secondMenu.getButton(second.getCallbackData()));
+        Assertions.assertNull(secondMenu.getButton(first.getCallbackData()));
+    }
+
+    @Test
+    public void reindexesButtonsOnInvalidate() {
+        final InlineContext context = new InlineContext("reindex");
+        final InlineButton first = new InlineButtonBuilder(context).name("First").build();
+        final InlineMenu menu = new InlineMenuBuilder(context).name("Menu").button(first).build();
+
+        final InlineButton added = new InlineButtonBuilder(context).name("Added").build();
+        menu.getButtons().add(added);
+        Assertions.assertNull(menu.getButton(added.getCallbackData()));
+
+        menu.invalidate();
+        Assertions.assertSame(first, menu.getButton(first.getCallbackData()));
+        Assertions.assertSame(added, menu.getButton(added.getCallbackData()));
+    }
+
+    @Test
+    public void cachesMarkupPerLayout() {
+        final InlineContext context = new InlineContext("markup");
+        final InlineMenu menu = new InlineMenuBuilder(context).name("Menu").button(new InlineButtonBuilder(context).name("First").build()).build();
+        final IInlineMenuLayout single = new InlineFixedButtonsPerRowLayout(1);
+        final IInlineMenuLayout pairs = new InlineFixedButtonsPerRowLayout(2);
+
+        final InlineKeyboardMarkup markup = menu.getMarkup(single);
+        Assertions.assertSame(markup, menu.getMarkup(single));
+        Assertions.assertNotSame(markup, menu.getMarkup(pairs));
+        Assertions.assertSame(menu.getMarkup(pairs), menu.getMarkup(pairs));
+    }
+
+    @Test
+    public void regeneratesMarkupOfUncacheableLayout() {
+        final InlineContext context = new InlineContext("uncacheable");
+        final InlineMenu menu = new InlineMenuBuilder(context).name("Menu").button(new InlineButtonBuilder(context).name("First").build()).build();
+        final IInlineMenuLayout layout = new InlineFixedButtonsPerRowLayout(1) {
+            @Override
+            public boolean isCacheable() {
+                return false;
+            }
+        };
+
+        Assertions.assertNotSame(menu.getMarkup(layout), menu.getMarkup(layout));
+    }
+
+    @Test
+    public void regeneratesMarkupOnInvalidate() {
+        final InlineContext context = new InlineContext("invalidate");
+        final InlineButton first = new InlineButtonBuilder(context).name("First").build();
+        final InlineMenu menu = new InlineMenuBuilder(context).name("Menu").button(first).build();
+        final IInlineMenuLayout layout = new InlineFixedButtonsPerRowLayout(1);
+
+        final InlineKeyboardMarkup markup = menu.getMarkup(layout);
+        Assertions.assertEquals(1, markup.getKeyboard().size());
+
+        final InlineButton added = new InlineButtonBuilder(context).name("Added").build();
+        menu.getButtons().add(added);
+        Assertions.assertSame(markup, menu.getMarkup(layout));
+
+        menu.invalidate();
+        final InlineKeyboardMarkup regenerated = menu.getMarkup(layout);
+        Assertions.assertNotSame(markup, regenerated);
+        Assertions.assertEquals(2, regenerated.getKeyboard().size());
+        Assertions.assertEquals(first.getCallbackData(), regenerated.getKeyboard().get(0).get(0).getCallbackData());
+        Assertions.assertEquals(added.getCallbackData(), regenerated.getKeyboard().get(1).get(0).getCallbackData());
+    }
+}
@@ -0,0 +1,13 @@
+plugins {
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+dependencies {
+    jmh(project(":CoreAPI"))
+    jmh(project(":InlineMenuAPI"))
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    profilers.set(listOf("gc"))
+}
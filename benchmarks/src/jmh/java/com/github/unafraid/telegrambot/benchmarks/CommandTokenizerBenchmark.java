@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.benchmarks;
+
+import com.github.unafraid.telegrambot.util.CommandTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the single pass {@link CommandTokenizer} against the regular expression that was used to split messages before
+ *
+ * @author UnAfraid
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandTokenizerBenchmark {
+    private static final Pattern COMMAND_ARGS_PATTERN = Pattern.compile("\"([^\"]*)\"|([^\\s]+)");
+    private static final Set<String> COMMANDS = Set.of("/start", "/menu", "/command");
+
+    @Param({"/command test \"quoted argument\" 1 2 3", "Hello there, how are you doing today?"})
+    public String text;
+
+    @Benchmark
+    public void pattern(Blackhole blackhole) {
+        final Matcher matcher = COMMAND_ARGS_PATTERN.matcher(text);
+        if (matcher.find()) {
+            final String command = matcher.group();
+            final List<String> args = new ArrayList<>();
+            String arg;
+            while (matcher.find()) {
+                arg = matcher.group(1);
+                if (arg == null) {
+                    arg = matcher.group(0);
+                }
+
+                args.add(arg);
+            }
+
+            if (COMMANDS.contains(command)) {
+                blackhole.consume(args);
+            }
+        }
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole blackhole) {
+        final String command = CommandTokenizer.parseCommand(text);
+        if ((command != null) && COMMANDS.contains(command)) {
+            blackhole.consume(CommandTokenizer.parseArguments(text));
+        }
+    }
+}
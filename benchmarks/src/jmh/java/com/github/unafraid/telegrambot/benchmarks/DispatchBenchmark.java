@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.benchmarks;
+
+import com.github.unafraid.telegrambot.bots.AbstractTelegramBot;
+import com.github.unafraid.telegrambot.bots.DefaultTelegramBot;
+import com.github.unafraid.telegrambot.handlers.ICallbackQueryHandler;
+import com.github.unafraid.telegrambot.handlers.ICommandHandler;
+import com.github.unafraid.telegrambot.handlers.IDocumentMessageHandler;
+import com.github.unafraid.telegrambot.handlers.IMessageHandler;
+import com.github.unafraid.telegrambot.handlers.IPollHandler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.telegram.telegrambots.meta.api.methods.GetMe;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Document;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.api.objects.polls.Poll;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures dispatching single update through {@link DefaultTelegramBot} with a growing amount of registered handlers<br>
+ * All handlers but the last one pass the update further, so the whole chain is walked. Run with the gc profiler to see the allocations per update.
+ *
+ * @author UnAfraid
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchBenchmark {
+    private static final User USER = new User(1L, "User", false);
+    private static final User BOT = new User(2L, "BenchmarkBot", true);
+
+    @Param({"COMMAND", "MESSAGE", "CALLBACK_QUERY", "DOCUMENT", "POLL"})
+    public String updateType;
+
+    @Param({"1", "10", "100", "1000"})
+    public int handlers;
+
+    private DefaultTelegramBot bot;
+    private List<Update> updates;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        bot = new DefaultTelegramBot(createTelegramClient());
+        for (int i = 0; i < handlers; i++) {
+            final boolean last = i == (handlers - 1);
+            if ("COMMAND".equals(updateType)) {
+                bot.addHandler(new CommandHandler("/command" + i, blackhole));
+            } else {
+                bot.addHandler(new Handler(last, blackhole));
+            }
+        }
+        updates = List.of(createUpdate());
+
+        // Resolves the bot's username so it isn't part of the measurement
+        bot.consume(updates);
+    }
+
+    @Benchmark
+    public void dispatch() {
+        bot.consume(updates);
+    }
+
+    private Update createUpdate() {
+        final Message message = new Message();
+        message.setMessageId(1);
+        message.setFrom(USER);
+        message.setChat(new Chat(USER.getId(), "private"));
+
+        final Update update = new Update();
+        update.setUpdateId(1);
+        update.setMessage(message);
+        switch (updateType) {
+            case "COMMAND" -> message.setText("/command" + (handlers - 1) + " first \"second argument\" third");
+            case "MESSAGE" -> message.setText("Hello there, how are you doing today?");
+            case "CALLBACK_QUERY" -> {
+                final CallbackQuery callbackQuery = new CallbackQuery();
+                callbackQuery.setId("1");
+                callbackQuery.setFrom(USER);
+                callbackQuery.setMessage(message);
+                callbackQuery.setData("data");
+                update.setMessage(null);
+                update.setCallbackQuery(callbackQuery);
+            }
+            case "DOCUMENT" -> {
+                final Document document = new Document();
+                document.setFileId("file");
+                message.setDocument(document);
+            }
+            case "POLL" -> {
+                final Poll poll = new Poll();
+                poll.setId("poll");
+                update.setPoll(poll);
+            }
+            default -> throw new IllegalArgumentException("Unknown update type: " + updateType);
+        }
+        return update;
+    }
+
+    private static TelegramClient createTelegramClient() {
+        return (TelegramClient) Proxy.newProxyInstance(DispatchBenchmark.class.getClassLoader(), new Class<?>[]{TelegramClient.class}, (proxy, method, args) -> {
+            if ((args != null) && (args.length == 1) && (args[0] instanceof GetMe)) {
+                return method.getName().equals("executeAsync") ? CompletableFuture.completedFuture(BOT) : BOT;
+            }
+            return method.getReturnType() == CompletableFuture.class ? CompletableFuture.completedFuture(null) : null;
+        });
+    }
+
+    private static class Handler implements IMessageHandler, ICallbackQueryHandler, IDocumentMessageHandler, IPollHandler {
+        private final boolean consume;
+        private final Blackhole blackhole;
+
+        private Handler(boolean consume, Blackhole blackhole) {
+            this.consume = consume;
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public boolean onMessage(AbstractTelegramBot bot, Update update, Message message) {
+            blackhole.consume(message);
+            return consume;
+        }
+
+        @Override
+        public boolean onCallbackQuery(AbstractTelegramBot bot, Update update, CallbackQuery query) {
+            blackhole.consume(query);
+            return consume;
+        }
+
+        @Override
+        public boolean onDocumentSent(AbstractTelegramBot bot, Update update, Message message) {
+            blackhole.consume(message);
+            return consume;
+        }
+
+        @Override
+        public boolean onPoll(AbstractTelegramBot bot, Update update, Poll poll) {
+            blackhole.consume(poll);
+            return consume;
+        }
+    }
+
+    private static class CommandHandler implements ICommandHandler {
+        private final String command;
+        private final Blackhole blackhole;
+
+        private CommandHandler(String command, Blackhole blackhole) {
+            this.command = command;
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public String getCommand() {
+            return command;
+        }
+
+        @Override
+        public String getUsage() {
+            return command;
+        }
+
+        @Override
+        public String getDescription() {
+            return "";
+        }
+
+        @Override
+        public void onCommandMessage(AbstractTelegramBot bot, Update update, Message message, List<String> args) {
+            blackhole.consume(args);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.benchmarks;
+
+import com.github.unafraid.telegrambot.util.ConcurrentLongObjectMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ConcurrentLongObjectMap} with {@link ConcurrentHashMap} keyed by boxed user ids<br>
+ * The populate benchmarks fill an empty map with all users, run them with the gc profiler and {@code gc.alloc.rate.norm} is the footprint of the map plus the garbage left by its resizes.
+ * The lookup benchmarks measure the throughput of callback queries resolving their user from four threads.
+ *
+ * @author UnAfraid
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LongObjectMapBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    private long[] userIds;
+    private Map<Long, Object> concurrentHashMap;
+    private ConcurrentLongObjectMap<Object> longObjectMap;
+
+    @Setup
+    public void setUp() {
+        final SplittableRandom random = new SplittableRandom(42);
+        userIds = new long[users];
+        concurrentHashMap = new ConcurrentHashMap<>();
+        longObjectMap = new ConcurrentLongObjectMap<>();
+        for (int i = 0; i < users; i++) {
+            // Telegram user ids are positive and fit into 52 bits
+            userIds[i] = random.nextLong(1L << 52);
+            concurrentHashMap.put(userIds[i], userIds);
+            longObjectMap.put(userIds[i], userIds);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom();
+
+        private long next(long[] userIds) {
+            return userIds[random.nextInt(userIds.length)];
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public Map<Long, Object> populateConcurrentHashMap() {
+        final Map<Long, Object> map = new ConcurrentHashMap<>();
+        for (long userId : userIds) {
+            map.put(userId, userIds);
+        }
+        return map;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public ConcurrentLongObjectMap<Object> populateLongObjectMap() {
+        final ConcurrentLongObjectMap<Object> map = new ConcurrentLongObjectMap<>();
+        for (long userId : userIds) {
+            map.put(userId, userIds);
+        }
+        return map;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(4)
+    public Object getConcurrentHashMap(Cursor cursor) {
+        return concurrentHashMap.get(cursor.next(userIds));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(4)
+    public Object getLongObjectMap(Cursor cursor) {
+        return longObjectMap.get(cursor.next(userIds));
+    }
+}
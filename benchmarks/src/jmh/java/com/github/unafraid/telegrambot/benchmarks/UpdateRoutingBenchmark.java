@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017 Rumen Nikiforov <unafraid89@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.unafraid.telegrambot.benchmarks;
+
+import com.github.unafraid.telegrambot.bots.AbstractTelegramBot;
+import com.github.unafraid.telegrambot.bots.DefaultTelegramBot;
+import com.github.unafraid.telegrambot.dispatch.UpdateType;
+import com.github.unafraid.telegrambot.handlers.ICallbackQueryHandler;
+import com.github.unafraid.telegrambot.handlers.IChatJoinRequestHandler;
+import com.github.unafraid.telegrambot.handlers.IMessageHandler;
+import com.github.unafraid.telegrambot.handlers.IPollHandler;
+import com.github.unafraid.telegrambot.util.UpdateUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.telegram.telegrambots.meta.api.methods.GetMe;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.ChatJoinRequest;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+import org.telegram.telegrambots.meta.api.objects.message.Message;
+import org.telegram.telegrambots.meta.api.objects.polls.Poll;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the way from receiving single update to its handler through the routes of {@link DefaultTelegramBot}, the update is classified once
+ * with {@link UpdateType#of(Update)} and the type is shared by the dispatcher and the routing<br>
+ * Run with the gc profiler to see the allocations per update, {@link DispatchBenchmark} measures walking many handlers.
+ *
+ * @author UnAfraid
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdateRoutingBenchmark {
+    private static final User USER = new User(1L, "User", false);
+    private static final User BOT = new User(2L, "BenchmarkBot", true);
+    private static final Chat CHAT = new Chat(USER.getId(), "private");
+
+    @Param({"MESSAGE", "CALLBACK_QUERY", "POLL", "CHAT_JOIN_REQUEST"})
+    public String updateType;
+
+    private DefaultTelegramBot bot;
+    private Update update;
+    private List<Update> updates;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        bot = new DefaultTelegramBot(createTelegramClient());
+        bot.addHandler(new Handler(blackhole));
+        update = createUpdate();
+        updates = List.of(update);
+
+        // Resolves the bot's username so it isn't part of the measurement
+        bot.consume(updates);
+    }
+
+    /**
+     * What the dispatcher needs to know about the update, its type and the chat it belongs to
+     */
+    @Benchmark
+    public void classify(Blackhole blackhole) {
+        final UpdateType type = UpdateType.of(update);
+        blackhole.consume(type);
+        blackhole.consume(UpdateUtil.getChatId(update, type));
+    }
+
+    /**
+     * The update passed to the bot and routed to its handler on the calling thread
+     */
+    @Benchmark
+    public void route() {
+        bot.consume(updates);
+    }
+
+    private Update createUpdate() {
+        final Message message = new Message();
+        message.setMessageId(1);
+        message.setFrom(USER);
+        message.setChat(CHAT);
+        message.setText("Hello there");
+
+        final Update update = new Update();
+        update.setUpdateId(1);
+        switch (updateType) {
+            case "MESSAGE" -> update.setMessage(message);
+            case "CALLBACK_QUERY" -> {
+                final CallbackQuery callbackQuery = new CallbackQuery();
+                callbackQuery.setId("1");
+                callbackQuery.setFrom(USER);
+                callbackQuery.setMessage(message);
+                callbackQuery.setData("data");
+                update.setCallbackQuery(callbackQuery);
+            }
+            case "POLL" -> {
+                // The bot validates the access of the message's sender
+                final Poll poll = new Poll();
+                poll.setId("poll");
+                update.setMessage(message);
+                update.setPoll(poll);
+            }
+            case "CHAT_JOIN_REQUEST" -> {
+                final ChatJoinRequest chatJoinRequest = new ChatJoinRequest();
+                chatJoinRequest.setUser(USER);
+                chatJoinRequest.setChat(CHAT);
+                update.setChatJoinRequest(chatJoinRequest);
+            }
+            default -> throw new IllegalArgumentException("Unknown update type: " + updateType);
+        }
+        return update;
+    }
+
+    private static TelegramClient createTelegramClient() {
+        return (TelegramClient) Proxy.newProxyInstance(UpdateRoutingBenchmark.class.getClassLoader(), new Class<?>[]{TelegramClient.class}, (proxy, method, args) -> {
+            if ((args != null) && (args.length == 1) && (args[0] instanceof GetMe)) {
+                return method.getName().equals("executeAsync") ? CompletableFuture.completedFuture(BOT) : BOT;
+            }
+            return method.getReturnType() == CompletableFuture.class ? CompletableFuture.completedFuture(null) : null;
+        });
+    }
+
+    private static class Handler implements IMessageHandler, ICallbackQueryHandler, IPollHandler, IChatJoinRequestHandler {
+        private final Blackhole blackhole;
+
+        private Handler(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public boolean onMessage(AbstractTelegramBot bot, Update update, Message message) {
+            blackhole.consume(message);
+            return true;
+        }
+
+        @Override
+        public boolean onCallbackQuery(AbstractTelegramBot bot, Update update, CallbackQuery query) {
+            blackhole.consume(query);
+            return true;
+        }
+
+        @Override
+        public boolean onPoll(AbstractTelegramBot bot, Update update, Poll poll) {
+            blackhole.consume(poll);
+            return true;
+        }
+
+        @Override
+        public boolean onChatJoinRequest(AbstractTelegramBot bot, Update update, ChatJoinRequest chatJoinRequest) {
+            blackhole.consume(chatJoinRequest);
+            return true;
+        }
+    }
+}
@@ -3,3 +3,4 @@ rootProject.name = "TelegramBotsAPIs"
 include("CoreAPI")
 include("InlineMenuAPI")
 include("ExampleBot")
+include("benchmarks")